@@ -0,0 +1,193 @@
+package org.example.ugplayer;
+
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Generated audio for the benchmarks, so they run offline without a music collection: small but
+ * well-formed mp3 (ID3v2.3 plus MPEG frames), m4a ({@code moov/udta/meta/ilst} plus {@code mdat})
+ * and wav (PCM with a {@code LIST/INFO} chunk) files carrying title, artist and album tags.
+ */
+final class Fixtures {
+
+    static final String[] FORMATS = {"mp3", "m4a", "wav"};
+
+    private static boolean toolkitStarted;
+
+    private Fixtures() {
+    }
+
+    static Path tempDir() {
+        try {
+            return Files.createTempDirectory("muzik-bench");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void delete(Path dir) {
+        if (dir == null) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Cannot delete " + dir + ": " + e.getMessage());
+        }
+        Path index = dir.resolveSibling(dir.getFileName() + ".muzik-index");
+        index.toFile().delete();
+    }
+
+    /**
+     * Writes a library of {@code tracks} files below {@code root} as {@code Artist/Album/NN Title.ext},
+     * cycling through the formats, with a cover image and a text file in every album folder that the
+     * scan filter has to skip.
+     */
+    static void library(Path root, int tracks) throws IOException {
+        int perAlbum = 12;
+        int albumsPerArtist = 4;
+        for (int i = 0; i < tracks; i++) {
+            int album = i / perAlbum;
+            int artist = album / albumsPerArtist;
+            Path dir = root.resolve(String.format("Artist %04d/Album %02d", artist, album % albumsPerArtist));
+            if (i % perAlbum == 0) {
+                Files.createDirectories(dir);
+                Files.write(dir.resolve("cover.jpg"), new byte[512]);
+                Files.writeString(dir.resolve("notes.txt"), "ripped for benchmarks");
+            }
+            String format = FORMATS[i % FORMATS.length];
+            String title = "Track " + i;
+            write(dir.resolve(String.format("%02d %s.%s", i % perAlbum + 1, title, format)), format,
+                    title, "Artist " + artist, "Album " + album);
+        }
+    }
+
+    static Path write(Path file, String format, String title, String artist, String album) throws IOException {
+        byte[] bytes = switch (format) {
+            case "mp3" -> mp3(title, artist, album);
+            case "m4a" -> m4a(title, artist, album);
+            case "wav" -> wav(title, artist, album);
+            default -> throw new IllegalArgumentException(format);
+        };
+        return Files.write(file, bytes);
+    }
+
+    /** Silences {@code System.out}, for code under test that logs a line per call. */
+    static void quiet() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Starts the JavaFX toolkit once per JVM. Benchmarks that need it fork with the Monocle headless
+     * platform ({@code -Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw}).
+     */
+    static synchronized void startToolkit() throws InterruptedException {
+        if (toolkitStarted) return;
+        CountDownLatch started = new CountDownLatch(1);
+        Platform.startup(started::countDown);
+        started.await();
+        toolkitStarted = true;
+    }
+
+    // === mp3 ===
+
+    private static byte[] mp3(String title, String artist, String album) {
+        ByteBuffer frames = ByteBuffer.allocate(4096);
+        id3Frame(frames, "TIT2", title);
+        id3Frame(frames, "TPE1", artist);
+        id3Frame(frames, "TALB", album);
+        int tagSize = frames.position() + 256; // plus padding
+        ByteBuffer out = ByteBuffer.allocate(10 + tagSize + 8 * 418);
+        out.put("ID3".getBytes(StandardCharsets.ISO_8859_1)).put((byte) 3).put((byte) 0).put((byte) 0);
+        out.put((byte) (tagSize >> 21 & 0x7F)).put((byte) (tagSize >> 14 & 0x7F))
+                .put((byte) (tagSize >> 7 & 0x7F)).put((byte) (tagSize & 0x7F));
+        out.put(frames.array(), 0, frames.position());
+        out.position(10 + tagSize);
+        for (int i = 0; i < 8; i++) { // MPEG-1 layer III, 128 kbit/s, 44.1 kHz: 418-byte frames
+            out.putInt(0xFFFB9064);
+            out.position(out.position() + 414);
+        }
+        return out.array();
+    }
+
+    private static void id3Frame(ByteBuffer out, String id, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        out.put(id.getBytes(StandardCharsets.ISO_8859_1)).putInt(bytes.length + 1).putShort((short) 0);
+        out.put((byte) 0).put(bytes);
+    }
+
+    // === m4a ===
+
+    private static byte[] m4a(String title, String artist, String album) {
+        byte[] ilst = atom("ilst", concat(item("©nam", title), item("©ART", artist), item("©alb", album)));
+        byte[] hdlr = atom("hdlr", new byte[25]);
+        byte[] meta = atom("meta", concat(new byte[4], hdlr, ilst)); // full box: version and flags first
+        byte[] moov = atom("moov", concat(atom("mvhd", new byte[100]), atom("udta", meta)));
+        byte[] ftyp = atom("ftyp", "M4A \0\0\0\0M4A mp42isom".getBytes(StandardCharsets.ISO_8859_1));
+        return concat(ftyp, moov, atom("mdat", new byte[2048]));
+    }
+
+    private static byte[] item(String name, String text) {
+        byte[] value = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer data = ByteBuffer.allocate(8 + value.length);
+        data.putInt(1).putInt(0).put(value); // type 1 = UTF-8, locale 0
+        return atom(name, atom("data", data.array()));
+    }
+
+    private static byte[] atom(String type, byte[] content) {
+        ByteBuffer out = ByteBuffer.allocate(8 + content.length);
+        out.putInt(8 + content.length).put(type.getBytes(StandardCharsets.ISO_8859_1)).put(content);
+        return out.array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] p : parts) length += p.length;
+        ByteBuffer out = ByteBuffer.allocate(length);
+        for (byte[] p : parts) out.put(p);
+        return out.array();
+    }
+
+    // === wav ===
+
+    /** A quarter second of a 440 Hz tone, 16-bit stereo at 44.1 kHz. */
+    private static byte[] wav(String title, String artist, String album) {
+        ByteBuffer info = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+        info.put("INFO".getBytes(StandardCharsets.ISO_8859_1));
+        infoChunk(info, "INAM", title);
+        infoChunk(info, "IART", artist);
+        infoChunk(info, "IPRD", album);
+        int infoSize = info.position();
+
+        int rate = 44100;
+        int frames = rate / 4;
+        int dataSize = frames * 4;
+        ByteBuffer out = ByteBuffer.allocate(12 + 24 + 8 + infoSize + 8 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        out.put("RIFF".getBytes(StandardCharsets.ISO_8859_1)).putInt(out.capacity() - 8).put("WAVE".getBytes(StandardCharsets.ISO_8859_1));
+        out.put("fmt ".getBytes(StandardCharsets.ISO_8859_1)).putInt(16)
+                .putShort((short) 1).putShort((short) 2).putInt(rate).putInt(rate * 4).putShort((short) 4).putShort((short) 16);
+        out.put("LIST".getBytes(StandardCharsets.ISO_8859_1)).putInt(infoSize).put(info.array(), 0, infoSize);
+        out.put("data".getBytes(StandardCharsets.ISO_8859_1)).putInt(dataSize);
+        for (int i = 0; i < frames; i++) {
+            short v = (short) (Math.sin(2 * Math.PI * 440 * i / rate) * 8000);
+            out.putShort(v).putShort(v);
+        }
+        return out.array();
+    }
+
+    private static void infoChunk(ByteBuffer out, String id, String text) {
+        byte[] bytes = (text + "\0").getBytes(StandardCharsets.UTF_8);
+        out.put(id.getBytes(StandardCharsets.ISO_8859_1)).putInt(bytes.length).put(bytes);
+        if ((bytes.length & 1) != 0) out.put((byte) 0);
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.ugplayer;
+
+import javafx.scene.text.Font;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fitting the mini player's title font: a cache hit (the same track shown again) and a miss, which
+ * runs the binary search over text measurements. Runs on the headless toolkit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dglass.platform=Monocle", "-Dmonocle.platform=Headless", "-Dprism.order=sw"})
+@State(Scope.Thread)
+public class FontFitBenchmark {
+
+    private static final double WIDTH = 160;
+
+    private final String[] titles = new String[64];
+    private String family;
+    private FontFitter cached;
+    private FontFitter uncached;
+    private int next;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        Fixtures.startToolkit();
+        family = Font.getDefault().getFamily();
+        for (int i = 0; i < titles.length; i++) titles[i] = "Track " + i + " (Extended Version) feat. Somebody";
+        cached = new FontFitter(16);
+        cached.fit(titles[0], family, WIDTH, 13, 9);
+        uncached = new FontFitter(1);
+    }
+
+    @Benchmark
+    public Font hit() {
+        return cached.fit(titles[0], family, WIDTH, 13, 9);
+    }
+
+    @Benchmark
+    public Font miss() {
+        next = (next + 1) % titles.length;
+        return uncached.fit(titles[next], family, WIDTH, 13, 9);
+    }
+}
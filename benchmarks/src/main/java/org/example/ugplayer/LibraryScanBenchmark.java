@@ -0,0 +1,101 @@
+package org.example.ugplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Library loading as done at startup: listing and filtering the folder tree alone, a rescan where
+ * every file is answered by the library index, and a first scan that parses every file's tags.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LibraryScanBenchmark {
+
+    private static final Predicate<Path> FILTER = p -> MainUI.isSupported(p.getFileName().toString());
+
+    @Param({"1000", "10000"})
+    public int tracks;
+
+    private Path root;
+    private Path coldRoot;
+    private LibraryScanner scanner;
+    private LibraryIndex index;
+
+    @Setup
+    public void setUp() throws Exception {
+        Fixtures.quiet();
+        Path dir = Fixtures.tempDir();
+        root = dir.resolve("library");
+        coldRoot = dir.resolve("cold");
+        Fixtures.library(root, tracks);
+        scanner = new LibraryScanner();
+        index = LibraryIndex.forFolder(root);
+        scan(root, index); // fills and saves the index
+    }
+
+    @TearDown
+    public void tearDown() {
+        scanner.shutdown();
+        Fixtures.delete(root.getParent());
+    }
+
+    /** Walks the tree and filters by extension, without touching the files. */
+    @Benchmark
+    public List<Path> listAndFilter() {
+        LibraryWalker walker = new LibraryWalker(root, FILTER, scanner.devices().forPath(root).permits());
+        return ForkJoinPool.commonPool().invoke(walker).files();
+    }
+
+    /** Startup with an up-to-date index: listing plus one stat per file. */
+    @Benchmark
+    public List<TrackInfo> scanIndexed() {
+        return scan(root, index);
+    }
+
+    /** An empty index for a folder that does not exist; the one the previous call saved is deleted first. */
+    @State(Scope.Thread)
+    public static class ColdIndex {
+        LibraryIndex index;
+
+        @Setup(Level.Invocation)
+        public void setUp(LibraryScanBenchmark benchmark) throws IOException {
+            Files.deleteIfExists(benchmark.coldRoot.resolveSibling(benchmark.coldRoot.getFileName() + ".muzik-index"));
+            index = LibraryIndex.forFolder(benchmark.coldRoot);
+        }
+    }
+
+    /** First start: every file's tags are parsed and a new index is written. */
+    @Benchmark
+    public List<TrackInfo> scanUnindexed(ColdIndex cold) {
+        return scan(root, cold.index);
+    }
+
+    private List<TrackInfo> scan(Path dir, LibraryIndex libraryIndex) {
+        return scanner.scanRoot(dir, libraryIndex, FILTER, dirs -> {
+        }, (r, scanned, total) -> {
+        }, LibraryScanner.Feed.NONE).join();
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.ugplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The play history after two million events over libraries of 10k and 100k tracks: what logging a
+ * play costs the calling (FX) thread, and the three statistics queries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlayLogBenchmark {
+
+    private static final int EVENTS = 2_000_000;
+
+    @Param({"10000", "100000"})
+    public int tracks;
+
+    private Path dir;
+    private PlayLog log;
+    private Path[] paths;
+    private long[] keys;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        Fixtures.quiet();
+        dir = Fixtures.tempDir();
+        log = new PlayLog(dir);
+        paths = new Path[tracks];
+        keys = new long[tracks];
+        for (int i = 0; i < tracks; i++) {
+            paths[i] = Path.of("/music", "Artist " + i / 48, String.format("%02d Track %d.mp3", i % 12 + 1, i));
+            keys[i] = PlayLog.key(paths[i]);
+        }
+        // a few favourites played a lot, a long tail played rarely, and part of the library never
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < EVENTS; i++) {
+            int t = (int) Math.min(tracks - 1, Math.abs(random.nextDouble() * random.nextDouble()) * tracks * 0.8);
+            log.record(paths[t], random.nextInt(4) != 0, 180);
+        }
+        log.mostPlayed(1).get(); // waits until every event is in
+    }
+
+    @TearDown
+    public void tearDown() {
+        log.close();
+        Fixtures.delete(dir);
+    }
+
+    /** Only the queueing; the worker writes in the background. */
+    @Benchmark
+    public int record() {
+        next = (next + 1) % tracks;
+        log.record(paths[next], true, 180);
+        return next;
+    }
+
+    @Benchmark
+    public List<PlayLog.Stat> mostPlayed() throws Exception {
+        return log.mostPlayed(100).get();
+    }
+
+    @Benchmark
+    public List<PlayLog.Stat> recentlyPlayed() throws Exception {
+        return log.recentlyPlayed(100).get();
+    }
+
+    @Benchmark
+    public long[] neverPlayed() throws Exception {
+        return log.neverPlayed(keys, 100).get();
+    }
+}
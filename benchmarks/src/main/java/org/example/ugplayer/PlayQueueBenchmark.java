@@ -0,0 +1,86 @@
+package org.example.ugplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The play queue over libraries of 100k and 1M tracks: one shuffled or in-order step including its
+ * history entry, queueing and playing a track from Up Next, stepping back, and dealing a new shuffle
+ * round, which is the only step that touches every track.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlayQueueBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int tracks;
+
+    private TrackStore store;
+    private PlayQueue inOrder;
+    private PlayQueue shuffled;
+    private int queued;
+
+    @Setup
+    public void setUp() {
+        store = new TrackStore();
+        store.mergeSorted(TrackStoreBenchmark.library(tracks));
+        inOrder = new PlayQueue(store, new SplittableRandom(1));
+        shuffled = new PlayQueue(store, new SplittableRandom(1));
+        shuffled.setShuffle(true);
+        inOrder.played(store.idAt(0));
+        shuffled.played(store.idAt(0));
+    }
+
+    @Benchmark
+    public int nextInOrder() {
+        int id = inOrder.next(false);
+        inOrder.played(id);
+        return id;
+    }
+
+    /** Rounds end every {@code tracks} calls, so the deal is averaged in. */
+    @Benchmark
+    public int nextShuffled() {
+        int id = shuffled.next(false);
+        shuffled.played(id);
+        return id;
+    }
+
+    @Benchmark
+    public int enqueueAndPlay() {
+        queued = (queued + 7919) % tracks;
+        inOrder.enqueue(store.idAt(queued));
+        int id = inOrder.next(false);
+        inOrder.played(id);
+        return id;
+    }
+
+    @Benchmark
+    public int previousAndBack() {
+        inOrder.previous();
+        return inOrder.next(false);
+    }
+
+    @Benchmark
+    public boolean newShuffleRound() {
+        shuffled.setShuffle(false);
+        shuffled.setShuffle(true);
+        return shuffled.isShuffle();
+    }
+}
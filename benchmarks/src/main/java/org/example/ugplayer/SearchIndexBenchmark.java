@@ -0,0 +1,52 @@
+package org.example.ugplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Library search over 200k tracks: a single letter matching nearly every track, a single digit
+ * matching a tenth of them through thousands of words, a substring and a two-word query.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchIndexBenchmark {
+
+    @Param({"200000"})
+    public int tracks;
+
+    @Param({"t", "7", "rack 123", "album 4567"})
+    public String query;
+
+    private SearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new SearchIndex();
+        List<TrackInfo> library = TrackStoreBenchmark.library(tracks);
+        for (int id = 0; id < library.size(); id++) {
+            TrackInfo t = library.get(id);
+            index.put(id, t.title(), t.artist(), t.album());
+        }
+    }
+
+    @Benchmark
+    public int[] search() {
+        return index.search(query);
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.ugplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** Reading title, artist and album from one file of each supported container. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TagParseBenchmark {
+
+    @Param({"mp3", "m4a", "wav"})
+    public String format;
+
+    private Path dir;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Fixtures.tempDir();
+        file = Fixtures.write(dir.resolve("track." + format), format, "A Fairly Long Song Title", "Some Artist", "Some Album");
+        if (TagReader.read(file).title() == null) throw new IllegalStateException("fixture has no title: " + file);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Fixtures.delete(dir);
+    }
+
+    @Benchmark
+    public TrackInfo read() throws IOException {
+        return TagReader.read(file);
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.ugplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The track model at library sizes of 10k and 100k: building it from a sorted scan, in one merge or
+ * in the chunks a scan feeds the list with, inserting and removing one track in the middle, and
+ * removing a tenth of the tracks in one call. Paths are not touched on disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrackStoreBenchmark {
+
+    private static final int CHUNK = 2048;
+
+    @Param({"10000", "100000"})
+    public int tracks;
+
+    private List<TrackInfo> library;
+    private TrackInfo extra;
+    private TrackStore store;
+
+    @Setup
+    public void setUp() {
+        library = library(tracks);
+        extra = new TrackInfo(Path.of("/music", String.format("Artist %04d", tracks / 96), "Album 99", "00 Extra.mp3"),
+                "Extra", "Artist", "Album");
+        store = new TrackStore();
+        store.mergeSorted(library);
+    }
+
+    @Benchmark
+    public TrackStore build() {
+        TrackStore fresh = new TrackStore();
+        fresh.mergeSorted(library);
+        return fresh;
+    }
+
+    /** The same library arriving as a scan's placeholder rows do, a chunk per merge. */
+    @Benchmark
+    public TrackStore buildInChunks() {
+        TrackStore fresh = new TrackStore();
+        for (int from = 0; from < library.size(); from += CHUNK) {
+            fresh.mergeSorted(library.subList(from, Math.min(library.size(), from + CHUNK)));
+        }
+        return fresh;
+    }
+
+    /** Adds a track in the middle of the list and removes it again, leaving the store as it was. */
+    @Benchmark
+    public boolean insertAndRemove() {
+        return store.remove(store.put(extra));
+    }
+
+    /** A full store and every tenth id, rebuilt before each call. */
+    @State(Scope.Thread)
+    public static class Removal {
+        TrackStore store;
+        int[] ids;
+
+        @Setup(Level.Invocation)
+        public void setUp(TrackStoreBenchmark benchmark) {
+            store = new TrackStore();
+            store.mergeSorted(benchmark.library);
+            ids = new int[store.size() / 10];
+            for (int i = 0; i < ids.length; i++) ids[i] = store.idAt(i * 10);
+        }
+    }
+
+    @Benchmark
+    public int removeTenth(Removal removal) {
+        return removal.store.removeAll(removal.ids);
+    }
+
+    static List<TrackInfo> library(int tracks) {
+        List<TrackInfo> library = new ArrayList<>(tracks);
+        for (int i = 0; i < tracks; i++) {
+            int album = i / 12;
+            Path path = Path.of("/music", String.format("Artist %04d", album / 8), String.format("Album %02d", album % 8),
+                    String.format("%02d Track %d.mp3", i % 12 + 1, i));
+            library.add(new TrackInfo(path, "Track " + i, "Artist " + album / 8, "Album " + album));
+        }
+        library.sort((a, b) -> LibraryScanner.PATH_ORDER.compare(a.path(), b.path()));
+        return library;
+    }
+}
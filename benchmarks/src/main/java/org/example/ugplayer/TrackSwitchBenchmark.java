@@ -0,0 +1,76 @@
+package org.example.ugplayer;
+
+import javafx.scene.text.Font;
+import javafx.util.Duration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The part of a track switch that does not depend on the media pipeline: looking the track up in
+ * the model, announcing it on the {@link PlaybackBus}, and a subscriber that updates its labels the
+ * way the mini player does. Creating the {@code MediaPlayer} itself needs real media and is left out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dglass.platform=Monocle", "-Dmonocle.platform=Headless", "-Dprism.order=sw"})
+@State(Scope.Thread)
+public class TrackSwitchBenchmark {
+
+    @Param({"10000"})
+    public int tracks;
+
+    private TrackStore store;
+    private PlaybackBus bus;
+    private int row;
+
+    /** Stands in for the mini player: fits the title font and formats the position labels. */
+    private static final class Labels implements PlaybackBus.Listener {
+        private final FontFitter fonts = new FontFitter(256);
+        private final String family = Font.getDefault().getFamily();
+        Object shown;
+
+        @Override
+        public void track(PlaybackBus.Track track) {
+            if (track == null) return;
+            shown = fonts.fit(track.title(), family, 160, 13, 9);
+            shown = fonts.fit(track.artist(), family, 160, 12, 8);
+        }
+
+        @Override
+        public void position(Duration current, Duration total) {
+            shown = MiniPlayerUI.formatTime((int) current.toSeconds());
+        }
+    }
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        Fixtures.startToolkit();
+        store = new TrackStore();
+        store.mergeSorted(TrackStoreBenchmark.library(tracks));
+        bus = new PlaybackBus(4);
+        bus.subscribe(new Labels());
+    }
+
+    @Benchmark
+    public PlaybackBus.Track next() {
+        row = (row + 1) % store.size();
+        int id = store.idAt(row);
+        PlaybackBus.Track track = new PlaybackBus.Track(id, store.path(id), store.title(id), store.artist(id),
+                store.album(id), row, store.size());
+        bus.load(track, null);
+        return track;
+    }
+}
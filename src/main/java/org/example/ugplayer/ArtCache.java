@@ -0,0 +1,372 @@
+package org.example.ugplayer;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Cover-art thumbnails shared by the main window and the mini player. Embedded art is pulled out of
+ * the file once ({@link TagReader#readArt(Path)}) and decoded straight to the largest requested
+ * size; smaller sizes are scaled down from that thumbnail, so a 3000px cover never stays in memory.
+ *
+ * <p>Each track has one entry holding its thumbnails. Entries live in an LRU bounded by pixel bytes
+ * ({@code -Dmuzik.artCacheMB}, default 24) and every thumbnail is also written to a disk cache
+ * ({@code ~/.muzik/art}) as deflated ARGB, keyed by path, size and modification time. Tracks without
+ * art are remembered too, so their files are not parsed again. The disk cache is held to
+ * {@code -Dmuzik.artDiskMB} (default 256) by {@link DiskCache}, at start-up and every few hundred writes.
+ */
+final class ArtCache {
+
+    private static final int MAGIC = 0x4D5A4152; // "MZAR"
+    private static final long BUDGET_BYTES = Math.max(1, Long.getLong("muzik.artCacheMB", 24)) * 1024 * 1024;
+    private static final long DISK_BYTES = Math.max(1, Long.getLong("muzik.artDiskMB", 256)) * 1024 * 1024;
+    private static final int PRUNE_EVERY = 500;
+
+    /** Counters since start-up. */
+    record Stats(long hits, long diskHits, long misses, int entries, long bytes, long budget) {
+        @Override
+        public String toString() {
+            long total = hits + diskHits + misses;
+            return String.format("art cache: %d entries, %.1f / %.1f MB, %d hits, %d disk hits, %d misses (%.0f%% hit rate)",
+                    entries, bytes / 1048576.0, budget / 1048576.0, hits, diskHits, misses,
+                    total == 0 ? 0.0 : 100.0 * (hits + diskHits) / total);
+        }
+    }
+
+    /** Thumbnails of one track; {@code sizes} is empty for a track without art. */
+    private static final class Entry {
+        final Map<Integer, Image> sizes = new HashMap<>();
+        boolean none;
+        long bytes;
+    }
+
+    private final Path diskDir;
+    private final long budget;
+    private final LinkedHashMap<String, Entry> lru = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, CompletableFuture<Image>> loading = new ConcurrentHashMap<>();
+    private final ExecutorService worker = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "art-cache");
+        t.setDaemon(true);
+        return t;
+    });
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicInteger writes = new AtomicInteger();
+
+    ArtCache() {
+        this(Path.of(System.getProperty("user.home"), ".muzik", "art"), BUDGET_BYTES);
+    }
+
+    ArtCache(Path diskDir, long budget) {
+        this.diskDir = diskDir;
+        this.budget = budget;
+        worker.execute(() -> DiskCache.prune(diskDir, DISK_BYTES));
+    }
+
+    /**
+     * Cover of {@code file} scaled to fit {@code px} x {@code px}, or {@code null} if it has none.
+     * Completes on a background thread.
+     */
+    CompletableFuture<Image> get(Path file, int px) {
+        // the key needs a stat, so even memory hits are answered off the calling thread
+        Path abs = file.toAbsolutePath().normalize();
+        String request = abs + "@" + px;
+        CompletableFuture<Image> result = new CompletableFuture<>();
+        CompletableFuture<Image> running = loading.putIfAbsent(request, result);
+        if (running != null) return running;
+        worker.execute(() -> {
+            try {
+                result.complete(load(abs, key(abs), px));
+            } catch (Exception e) {
+                System.err.println("Cannot load art of " + file.getFileName() + ": " + e.getMessage());
+                result.complete(null);
+            } finally {
+                loading.remove(request, result);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Adopts a full-size cover that JavaFX decoded from the media metadata, for files whose art
+     * {@link TagReader} could not find. Only a thumbnail of it is kept.
+     */
+    CompletableFuture<Image> offer(Path file, Image full, int px) {
+        return CompletableFuture.supplyAsync(() -> {
+            String key = key(file);
+            Image thumb = scale(full, px);
+            store(key, px, thumb);
+            try {
+                Files.deleteIfExists(diskFile(key, 0));
+            } catch (IOException ignored) {
+            }
+            return thumb;
+        }, worker);
+    }
+
+    Stats stats() {
+        synchronized (this) {
+            return new Stats(hits.get(), diskHits.get(), misses.get(), lru.size(), bytes, budget);
+        }
+    }
+
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    // === loading ===
+
+    private Image load(Path file, String key, int px) throws IOException {
+        Image image = memoryLookup(key, px);
+        if (image != null || isKnownEmpty(key)) {
+            hits.incrementAndGet();
+            return image;
+        }
+
+        image = readDisk(key, px);
+        if (image != null) {
+            diskHits.incrementAndGet();
+            remember(key, px, image);
+            return image;
+        }
+        if (Files.exists(diskFile(key, 0))) {
+            DiskCache.touch(diskFile(key, 0));
+            diskHits.incrementAndGet();
+            rememberNone(key);
+            return null;
+        }
+
+        // a larger thumbnail of the same track is as good as the original for scaling down
+        Image larger = largerThumbnail(key, px);
+        if (larger != null) {
+            hits.incrementAndGet();
+            Image thumb = scale(larger, px);
+            store(key, px, thumb);
+            return thumb;
+        }
+
+        misses.incrementAndGet();
+        byte[] art = TagReader.readArt(file);
+        if (art == null) {
+            rememberNone(key);
+            writeNone(key);
+            return null;
+        }
+        Image decoded = new Image(new ByteArrayInputStream(art), px, px, true, true);
+        if (decoded.isError() || decoded.getWidth() <= 0) {
+            rememberNone(key);
+            return null;
+        }
+        Image thumb = scale(decoded, px); // copies into a compact WritableImage
+        store(key, px, thumb);
+        return thumb;
+    }
+
+    private void store(String key, int px, Image thumb) {
+        remember(key, px, thumb);
+        try {
+            writeDisk(key, px, thumb);
+        } catch (IOException e) {
+            System.err.println("Cannot write art cache: " + e.getMessage());
+        }
+    }
+
+    // === memory ===
+
+    private synchronized Image memoryLookup(String key, int px) {
+        Entry e = lru.get(key);
+        return e == null ? null : e.sizes.get(px);
+    }
+
+    private synchronized boolean isKnownEmpty(String key) {
+        Entry e = lru.get(key);
+        return e != null && e.none;
+    }
+
+    private synchronized Image largerThumbnail(String key, int px) {
+        Entry e = lru.get(key);
+        if (e == null) return null;
+        Image best = null;
+        for (Map.Entry<Integer, Image> s : e.sizes.entrySet()) {
+            if (s.getKey() > px && (best == null || s.getValue().getWidth() < best.getWidth())) best = s.getValue();
+        }
+        return best;
+    }
+
+    private synchronized void remember(String key, int px, Image image) {
+        Entry e = lru.computeIfAbsent(key, k -> new Entry());
+        e.none = false;
+        Image old = e.sizes.put(px, image);
+        long delta = pixelBytes(image) - (old != null ? pixelBytes(old) : 0);
+        e.bytes += delta;
+        bytes += delta;
+        evict(key);
+    }
+
+    private synchronized void rememberNone(String key) {
+        lru.computeIfAbsent(key, k -> new Entry()).none = true;
+    }
+
+    /** Drops least recently used entries (never {@code keep}) until the budget holds. */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Entry>> it = lru.entrySet().iterator();
+        while (bytes > budget && it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            if (e.getKey().equals(keep)) continue;
+            bytes -= e.getValue().bytes;
+            it.remove();
+        }
+    }
+
+    private static long pixelBytes(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    // === disk ===
+
+    private Path diskFile(String key, int px) {
+        String name = Long.toHexString(hash64(key));
+        return diskDir.resolve(px == 0 ? name + ".none" : name + "-" + px + ".art");
+    }
+
+    private Image readDisk(String key, int px) throws IOException {
+        Path f = diskFile(key, px);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(Files.newInputStream(f))))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(key)) return null; // hash collision or old file
+            int w = in.readInt();
+            int h = in.readInt();
+            if (w <= 0 || h <= 0 || w > 4096 || h > 4096) return null;
+            int[] argb = new int[w * h];
+            for (int i = 0; i < argb.length; i++) argb[i] = in.readInt();
+            WritableImage image = new WritableImage(w, h);
+            image.getPixelWriter().setPixels(0, 0, w, h, PixelFormat.getIntArgbInstance(), argb, 0, w);
+            DiskCache.touch(f);
+            return image;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, int px, Image image) throws IOException {
+        int w = (int) image.getWidth();
+        int h = (int) image.getHeight();
+        int[] argb = new int[w * h];
+        image.getPixelReader().getPixels(0, 0, w, h, PixelFormat.getIntArgbInstance(), argb, 0, w);
+
+        Files.createDirectories(diskDir);
+        Path target = diskFile(key, px);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp" + Thread.currentThread().getId());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(Files.newOutputStream(tmp))))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(key);
+            out.writeInt(w);
+            out.writeInt(h);
+            for (int p : argb) out.writeInt(p);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        written();
+    }
+
+    private void writeNone(String key) {
+        try {
+            Files.createDirectories(diskDir);
+            Files.write(diskFile(key, 0), new byte[0]);
+            written();
+        } catch (IOException e) {
+            System.err.println("Cannot write art cache: " + e.getMessage());
+        }
+    }
+
+    private void written() {
+        if (writes.incrementAndGet() % PRUNE_EVERY == 0) DiskCache.prune(diskDir, DISK_BYTES);
+    }
+
+    // === helpers ===
+
+    /** Path plus size and modification time, so edited files get fresh art. */
+    static String key(Path file) {
+        Path abs = file.toAbsolutePath().normalize();
+        try {
+            return abs + "|" + Files.size(abs) + "|" + Files.getLastModifiedTime(abs).toMillis();
+        } catch (IOException e) {
+            return abs.toString();
+        }
+    }
+
+    static long hash64(String s) {
+        long h = 0xcbf29ce484222325L; // FNV-1a
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /** Box-filters {@code src} down to fit {@code px} (never up) into a new compact image. */
+    static Image scale(Image src, int px) {
+        PixelReader reader = src.getPixelReader();
+        int sw = (int) src.getWidth();
+        int sh = (int) src.getHeight();
+        double factor = Math.min(1.0, (double) px / Math.max(sw, sh));
+        int dw = Math.max(1, (int) Math.round(sw * factor));
+        int dh = Math.max(1, (int) Math.round(sh * factor));
+
+        int[] in = new int[sw * sh];
+        reader.getPixels(0, 0, sw, sh, PixelFormat.getIntArgbInstance(), in, 0, sw);
+        int[] out = new int[dw * dh];
+        for (int y = 0; y < dh; y++) {
+            int y0 = y * sh / dh;
+            int y1 = Math.max(y0 + 1, (y + 1) * sh / dh);
+            for (int x = 0; x < dw; x++) {
+                int x0 = x * sw / dw;
+                int x1 = Math.max(x0 + 1, (x + 1) * sw / dw);
+                long a = 0, r = 0, g = 0, b = 0;
+                for (int sy = y0; sy < y1; sy++) {
+                    for (int sx = x0; sx < x1; sx++) {
+                        int p = in[sy * sw + sx];
+                        a += p >>> 24;
+                        r += (p >> 16) & 0xFF;
+                        g += (p >> 8) & 0xFF;
+                        b += p & 0xFF;
+                    }
+                }
+                int n = (y1 - y0) * (x1 - x0);
+                out[y * dw + x] = (int) (a / n) << 24 | (int) (r / n) << 16 | (int) (g / n) << 8 | (int) (b / n);
+            }
+        }
+        WritableImage image = new WritableImage(dw, dh);
+        image.getPixelWriter().setPixels(0, 0, dw, dh, PixelFormat.getIntArgbInstance(), out, 0, dw);
+        return image;
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.ugplayer;
+
+import java.lang.management.ManagementFactory;
+
+/** CPU time used by this process between two samples, as a percentage of one core. */
+final class CpuMeter {
+
+    private final com.sun.management.OperatingSystemMXBean os;
+    private long lastCpuNanos;
+    private long lastWallNanos;
+
+    CpuMeter() {
+        os = ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean bean ? bean : null;
+        sample();
+    }
+
+    /** Percentage of one core used since the previous call, or -1 if the JVM does not report process CPU time. */
+    double sample() {
+        if (os == null) return -1;
+        long cpu = os.getProcessCpuTime();
+        long wall = System.nanoTime();
+        double percent = wall > lastWallNanos && lastWallNanos != 0 ? 100.0 * (cpu - lastCpuNanos) / (wall - lastWallNanos) : 0;
+        lastCpuNanos = cpu;
+        lastWallNanos = wall;
+        return percent;
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.ugplayer;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds library I/O per underlying storage device. Every {@link FileStore} gets its own small
+ * worker pool and permit count, so a slow USB drive only ever occupies its own threads instead of
+ * starving scans of the other disks. The limit is {@code -Dmuzik.ioPerDevice} (default 4).
+ */
+final class DeviceLimits {
+
+    private static final int PER_DEVICE = Math.max(1, Integer.getInteger("muzik.ioPerDevice", 4));
+
+    /** One storage device: permits for directory walking and a pool for reading files. */
+    static final class Device {
+        private final String name;
+        private final Semaphore permits = new Semaphore(PER_DEVICE);
+        private final ExecutorService executor;
+
+        private Device(String name) {
+            this.name = name;
+            AtomicInteger threadId = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(PER_DEVICE, r -> {
+                Thread t = new Thread(r, "library-io-" + name + "-" + threadId.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        String name() {
+            return name;
+        }
+
+        Semaphore permits() {
+            return permits;
+        }
+
+        ExecutorService executor() {
+            return executor;
+        }
+    }
+
+    private final Map<Object, Device> devices = new ConcurrentHashMap<>();
+    // resolving a FileStore is not free (it reads the mount table on Linux), so cache it per directory
+    private final Map<Path, Device> byDirectory = new ConcurrentHashMap<>();
+
+    /** Returns the device holding {@code path} (a file or a directory). */
+    Device forPath(Path path) {
+        Path dir = Files.isDirectory(path) ? path : path.getParent();
+        if (dir == null) dir = path;
+        return byDirectory.computeIfAbsent(dir, this::resolve);
+    }
+
+    private Device resolve(Path dir) {
+        Object key;
+        String name;
+        try {
+            FileStore store = Files.getFileStore(dir);
+            key = store;
+            name = store.name().isEmpty() ? store.type() : store.name();
+        } catch (IOException e) {
+            key = dir.getRoot() != null ? dir.getRoot() : dir;
+            name = key.toString();
+        }
+        String deviceName = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return devices.computeIfAbsent(key, k -> new Device(deviceName));
+    }
+
+    void shutdown() {
+        for (Device device : devices.values()) device.executor.shutdownNow();
+    }
+}
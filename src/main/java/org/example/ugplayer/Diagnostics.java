@@ -0,0 +1,84 @@
+package org.example.ugplayer;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Keeps a Flight Recorder recording of the last {@code MAX_AGE} running and writes performance
+ * reports: the recording as {@code .jfr} plus a plain-text {@link Metrics} summary next to it. The
+ * recording uses the JDK configuration named by {@code -Dmuzik.jfr} ({@code default}, which costs
+ * about 1%, or {@code profile}); {@code -Dmuzik.jfr=none} records nothing and reports only contain
+ * the summary.
+ */
+final class Diagnostics {
+
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+    private static final long MAX_SIZE = 64L * 1024 * 1024;
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path reportDir;
+    private final Recording recording;
+
+    Diagnostics() {
+        this(Path.of(System.getProperty("user.home"), ".muzik", "reports"));
+    }
+
+    Diagnostics(Path reportDir) {
+        this.reportDir = reportDir;
+        this.recording = start(System.getProperty("muzik.jfr", "default"));
+    }
+
+    private static Recording start(String settings) {
+        if (settings.equals("none")) return null;
+        try {
+            Recording r = new Recording(Configuration.getConfiguration(settings));
+            r.setName("muzik");
+            r.setMaxAge(MAX_AGE);
+            r.setMaxSize(MAX_SIZE);
+            r.setToDisk(true);
+            r.start();
+            return r;
+        } catch (Exception e) {
+            // no JFR in this runtime, or an unknown configuration name
+            System.err.println("Flight recording not started: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a report and returns the summary file, which ends with {@code appendix}; the {@code .jfr}
+     * beside it is left out if nothing is recorded.
+     */
+    Path writeReport(String appendix) throws IOException {
+        Files.createDirectories(reportDir);
+        String name = "muzik-" + LocalDateTime.now().format(STAMP);
+        Path summary = reportDir.resolve(name + ".txt");
+        Path jfr = reportDir.resolve(name + ".jfr");
+        if (recording != null) recording.dump(jfr);
+
+        StringBuilder text = new StringBuilder();
+        Runtime rt = Runtime.getRuntime();
+        text.append("Muzik performance report, ").append(LocalDateTime.now()).append('\n');
+        text.append(String.format("Java %s, uptime %d s, heap %d of %d MB%n", System.getProperty("java.version"),
+                ManagementFactory.getRuntimeMXBean().getUptime() / 1000,
+                (rt.totalMemory() - rt.freeMemory()) / (1024 * 1024), rt.maxMemory() / (1024 * 1024)));
+        text.append(recording != null ? "Recording: " + jfr.getFileName() + " (last " + MAX_AGE.toMinutes() + " minutes)\n"
+                : "Recording: off (-Dmuzik.jfr=none)\n");
+        text.append('\n').append(Metrics.summary());
+        if (!appendix.isEmpty()) text.append('\n').append(appendix);
+        Files.writeString(summary, text);
+        return summary;
+    }
+
+    void close() {
+        if (recording != null) recording.close();
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.ugplayer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Size bound for the cache directories under {@code ~/.muzik}. A file is touched whenever it is
+ * read, so its modification time is its last use; once a directory grows past its limit, the least
+ * recently used files go until it is back under three quarters of it. Entries of edited or deleted
+ * tracks are never read again and so are the first to go.
+ */
+final class DiskCache {
+
+    private record Item(Path file, long size, long used) {
+    }
+
+    private DiskCache() {
+    }
+
+    /** Marks {@code file} as just used. */
+    static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // only affects which files are pruned first
+        }
+    }
+
+    /** Deletes least recently used files of {@code dir} if it holds more than {@code maxBytes}. */
+    static void prune(Path dir, long maxBytes) {
+        List<Item> items = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                try {
+                    BasicFileAttributes a = Files.readAttributes(f, BasicFileAttributes.class);
+                    if (!a.isRegularFile()) continue;
+                    items.add(new Item(f, a.size(), a.lastModifiedTime().toMillis()));
+                    total += a.size();
+                } catch (IOException ignored) {
+                    // deleted in the meantime
+                }
+            }
+        } catch (IOException e) {
+            return; // nothing cached yet
+        }
+        if (total <= maxBytes) return;
+
+        items.sort(Comparator.comparingLong(Item::used));
+        long target = maxBytes / 4 * 3;
+        int deleted = 0;
+        for (int i = 0; i < items.size() && total > target; i++) {
+            try {
+                Files.deleteIfExists(items.get(i).file());
+                total -= items.get(i).size();
+                deleted++;
+            } catch (IOException e) {
+                System.err.println("Cannot prune " + items.get(i).file().getFileName() + ": " + e.getMessage());
+            }
+        }
+        System.out.printf("Pruned %d files from %s (%.1f MB left)%n", deleted, dir, total / 1048576.0);
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.ugplayer;
+
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds library files with identical audio. Tags are left out ({@link TagReader#payloadRange}), so
+ * a re-tagged or renamed copy still matches; different encodings of the same song do not.
+ *
+ * <p>Only files whose payload length equals another file's are hashed at all. Hashing runs on the
+ * per-device pools of {@link DeviceLimits} and reads the payload through memory-mapped windows of
+ * {@code WINDOW} bytes, so heap use does not depend on file size. Lengths and hashes are kept in
+ * {@link PayloadHashes}, so a later run only touches new or changed files.
+ */
+final class DuplicateFinder extends Task<List<List<Path>>> {
+
+    private static final long WINDOW = 64L * 1024 * 1024;
+
+    private final List<Path> files;
+    private final DeviceLimits devices;
+    private PayloadHashes store;
+
+    DuplicateFinder(List<Path> files, DeviceLimits devices) {
+        this.files = files;
+        this.devices = devices;
+    }
+
+    @Override
+    protected List<List<Path>> call() throws Exception {
+        long start = System.nanoTime();
+        store = PayloadHashes.load();
+        store.retainOnly(files);
+
+        // 1. payload length of every file (from the store, or by reading its headers)
+        updateMessage("Reading file headers…");
+        Map<Path, PayloadHashes.Entry> entries = new HashMap<>();
+        AtomicInteger done = new AtomicInteger();
+        runAll(files, file -> {
+            PayloadHashes.Entry e = describe(file);
+            updateProgress(done.incrementAndGet(), files.size() * 2L);
+            return e;
+        }, entries);
+
+        // 2. hash only files that share their payload length with another file
+        Map<Long, List<Path>> byLength = new HashMap<>();
+        entries.forEach((file, e) -> byLength.computeIfAbsent(e.payloadLength(), l -> new ArrayList<>()).add(file));
+        List<Path> toHash = new ArrayList<>();
+        for (List<Path> same : byLength.values()) {
+            if (same.size() < 2) continue;
+            for (Path file : same) if (entries.get(file).hash() == null) toHash.add(file);
+        }
+        updateMessage("Hashing " + toHash.size() + " files…");
+        AtomicInteger hashed = new AtomicInteger();
+        Map<Path, PayloadHashes.Entry> withHash = new HashMap<>();
+        runAll(toHash, file -> {
+            PayloadHashes.Entry e = entries.get(file);
+            byte[] hash = hashPayload(file);
+            PayloadHashes.Entry updated = new PayloadHashes.Entry(e.size(), e.modified(), e.payloadLength(), hash);
+            store.put(file, updated);
+            updateProgress(files.size() + (long) hashed.incrementAndGet() * files.size() / Math.max(1, toHash.size()), files.size() * 2L);
+            return updated;
+        }, withHash);
+        entries.putAll(withHash);
+        store.save();
+
+        // 3. group by hash
+        Map<String, List<Path>> byHash = new HashMap<>();
+        for (List<Path> same : byLength.values()) {
+            if (same.size() < 2) continue;
+            for (Path file : same) {
+                byte[] hash = entries.get(file).hash();
+                if (hash != null) byHash.computeIfAbsent(HexFormat.of().formatHex(hash), h -> new ArrayList<>()).add(file);
+            }
+        }
+        List<List<Path>> groups = new ArrayList<>();
+        for (List<Path> group : byHash.values()) {
+            if (group.size() < 2) continue;
+            group.sort(LibraryScanner.PATH_ORDER);
+            groups.add(group);
+        }
+        groups.sort((a, b) -> LibraryScanner.PATH_ORDER.compare(a.get(0), b.get(0)));
+
+        System.out.printf("Duplicate scan: %d files, %d hashed, %d groups in %d ms%n",
+                files.size(), toHash.size(), groups.size(), (System.nanoTime() - start) / 1_000_000);
+        updateProgress(1, 1);
+        updateMessage(groups.size() + " duplicate groups");
+        return groups;
+    }
+
+    private interface FileJob {
+        PayloadHashes.Entry run(Path file) throws IOException;
+    }
+
+    /** Runs {@code job} for every file on its device's pool; failed files are logged and left out. */
+    private void runAll(List<Path> files, FileJob job, Map<Path, PayloadHashes.Entry> out) throws InterruptedException {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(files.size());
+        for (Path file : files) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                if (isCancelled()) return;
+                try {
+                    PayloadHashes.Entry e = job.run(file);
+                    synchronized (out) {
+                        out.put(file, e);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Cannot check " + file.getFileName() + ": " + e.getMessage());
+                }
+            }, devices.forPath(file).executor()));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            if (isCancelled()) throw new InterruptedException("cancelled");
+        }
+    }
+
+    private PayloadHashes.Entry describe(Path file) throws IOException {
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        PayloadHashes.Entry known = store.lookup(file, size, modified);
+        if (known != null) return known;
+        long[] range = TagReader.payloadRange(file);
+        PayloadHashes.Entry e = new PayloadHashes.Entry(size, modified, range[1] - range[0], null);
+        store.put(file, e);
+        return e;
+    }
+
+    /** SHA-256 of the payload, read through memory-mapped windows. */
+    private byte[] hashPayload(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        long[] range = TagReader.payloadRange(file);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (long pos = range[0]; pos < range[1]; pos += WINDOW) {
+                if (isCancelled()) throw new IOException("cancelled");
+                MappedByteBuffer window = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, range[1] - pos));
+                digest.update(window);
+            }
+        }
+        return digest.digest();
+    }
+}
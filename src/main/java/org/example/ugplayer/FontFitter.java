@@ -0,0 +1,94 @@
+package org.example.ugplayer;
+
+import javafx.scene.control.Label;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Picks the largest font size at which a label's text fits its width. The size is found by binary
+ * search to {@code STEP} points, measured with one reused {@link Text}, and the resulting
+ * {@link Font} is remembered per (text, family, width, size range) in a small LRU cache, so
+ * revisiting a track costs a map lookup. Must be used from the FX thread.
+ */
+final class FontFitter {
+
+    private static final double STEP = 0.1;
+
+    private record Key(String text, String family, double width, double max, double min) {
+    }
+
+    private final Text probe = new Text();
+    private final Map<Key, Font> fitted;
+    private long measurements;
+
+    FontFitter(int capacity) {
+        fitted = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Font> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Largest font of {@code family} between {@code min} and {@code max} points that fits {@code width}. */
+    Font fit(String text, String family, double width, double max, double min) {
+        Key key = new Key(text, family, Math.round(width * 2) / 2.0, max, min);
+        Font font = fitted.get(key);
+        if (font == null) {
+            font = Font.font(family, search(text, family, key.width(), max, min));
+            fitted.put(key, font);
+        }
+        return font;
+    }
+
+    /**
+     * Keeps {@code label}'s font fitted to its text from now on. The size is recomputed only when the
+     * text or the width actually changes, right away rather than on a later pulse, so the label is
+     * laid out once with its final font. Wrapping labels keep {@code max}, as they can grow instead.
+     */
+    void bind(Label label, double max, double min) {
+        String family = label.getFont().getFamily();
+        Runnable refit = () -> {
+            double width = label.getWidth() > 0 ? label.getWidth() : label.getPrefWidth();
+            String text = label.getText();
+            if (width <= 0 || text == null) return;
+            Font font = label.isWrapText() ? fit("", family, width, max, max) : fit(text, family, width, max, min);
+            if (label.getFont() != font) label.setFont(font);
+        };
+        label.textProperty().addListener((obs, old, now) -> {
+            if (!now.equals(old)) refit.run();
+        });
+        label.widthProperty().addListener((obs, old, now) -> {
+            if (Math.abs(now.doubleValue() - old.doubleValue()) >= 0.5) refit.run();
+        });
+        refit.run();
+    }
+
+    /** Text layout measurements made so far, for diagnostics. */
+    long measurements() {
+        return measurements;
+    }
+
+    private double search(String text, String family, double width, double max, double min) {
+        if (max <= min || fits(text, family, max, width)) return max;
+        if (!fits(text, family, min, width)) return min;
+        double lo = min; // fits
+        double hi = max; // does not fit
+        while (hi - lo > STEP) {
+            double mid = (lo + hi) / 2;
+            if (fits(text, family, mid, width)) lo = mid;
+            else hi = mid;
+        }
+        return Math.floor(lo / STEP) * STEP;
+    }
+
+    private boolean fits(String text, String family, double size, double width) {
+        measurements++;
+        probe.setText(text);
+        probe.setFont(Font.font(family, size));
+        return probe.getLayoutBounds().getWidth() <= width;
+    }
+}
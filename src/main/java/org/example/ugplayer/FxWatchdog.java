@@ -0,0 +1,148 @@
+package org.example.ugplayer;
+
+import javafx.application.Platform;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Watches how responsive the FX application thread is. A daemon thread posts a tiny probe to the FX
+ * event queue every {@code PERIOD_MS} and records how long it waits to run: a latency histogram
+ * (also fed to {@link Metrics} as {@code fx.latency}) shows how the thread keeps up. When a probe is
+ * still waiting after {@code -Dmuzik.stallMs} (default 250), the FX thread's stack is captured right
+ * then, which shows what it is blocked in, and kept with the stall's total length once it ends.
+ *
+ * <p>Cost is one queued runnable per period and no work at all on the FX thread besides it, so it
+ * stays on in normal use. {@code -Dmuzik.watchdog=false} turns it off.
+ */
+final class FxWatchdog {
+
+    private static final long PERIOD_MS = 100;
+    private static final long STALL_MS = Long.getLong("muzik.stallMs", 250);
+    private static final int KEPT_STALLS = 20;
+    private static final int SHOWN_FRAMES = 12;
+    private static final long[] BUCKET_LIMITS_MS = {16, 50, 100, 250, 1000};
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    /** One stall: when it was noticed, how long the FX thread was unavailable and where it was. */
+    record Stall(LocalDateTime noticed, long millis, StackTraceElement[] stack) {
+    }
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_LIMITS_MS.length + 1);
+    private final Metrics.Timer latency = Metrics.timer("fx.latency");
+    private final ArrayDeque<Stall> stalls = new ArrayDeque<>();
+    private final Thread thread = new Thread(this::run, "fx-watchdog");
+
+    private volatile Thread fxThread;
+    private volatile long postedAt;
+    private volatile boolean pending;
+    private volatile long lastWait;
+    private long totalStalls;
+
+    /** Starts watching; call from the FX thread. */
+    void start() {
+        fxThread = Thread.currentThread();
+        if (!Boolean.parseBoolean(System.getProperty("muzik.watchdog", "true"))) return;
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() {
+        thread.interrupt();
+    }
+
+    private void run() {
+        StackTraceElement[] stallStack = null;
+        LocalDateTime stallNoticed = null;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(PERIOD_MS);
+                long now = System.nanoTime();
+                if (pending) {
+                    if (stallStack == null && fxThread != null && now - postedAt >= STALL_MS * 1_000_000) {
+                        stallStack = fxThread.getStackTrace();
+                        stallNoticed = LocalDateTime.now();
+                    }
+                    continue;
+                }
+                if (stallStack != null) {
+                    // the probe that stalled has run; its wait is the stall's length
+                    recordStall(stallNoticed, stallStack);
+                    stallStack = null;
+                }
+                pending = true;
+                postedAt = now;
+                Platform.runLater(this::probe);
+            }
+        } catch (InterruptedException e) {
+            // shutting down
+        }
+    }
+
+    /** Runs on the FX thread. */
+    private void probe() {
+        long waited = System.nanoTime() - postedAt;
+        if (fxThread == null) fxThread = Thread.currentThread();
+        lastWait = waited;
+        latency.record(waited);
+        long millis = waited / 1_000_000;
+        int b = 0;
+        while (b < BUCKET_LIMITS_MS.length && millis >= BUCKET_LIMITS_MS[b]) b++;
+        buckets.incrementAndGet(b);
+        pending = false;
+    }
+
+    private void recordStall(LocalDateTime noticed, StackTraceElement[] stack) {
+        long millis = lastWait / 1_000_000;
+        PlayerEvents.FxStall event = new PlayerEvents.FxStall();
+        event.millis = millis;
+        event.stack = format(stack, SHOWN_FRAMES);
+        event.commit();
+        System.err.printf("FX thread stalled for %d ms in %s%n", millis, stack.length > 0 ? stack[0] : "?");
+        synchronized (stalls) {
+            if (stalls.size() == KEPT_STALLS) stalls.removeFirst();
+            stalls.addLast(new Stall(noticed, millis, stack));
+            totalStalls++;
+        }
+    }
+
+    /** Compact plain-text report: the latency histogram and the most recent stalls with their stacks. */
+    String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("FX thread latency, %d probes every %d ms: p50 %.1f ms, p95 %.1f ms, max %.0f ms%n",
+                latency.count(), PERIOD_MS, latency.percentileMillis(50), latency.percentileMillis(95), latency.maxMillis()));
+        long lower = 0;
+        for (int b = 0; b < buckets.length(); b++) {
+            String range = b < BUCKET_LIMITS_MS.length ? lower + "-" + BUCKET_LIMITS_MS[b] + " ms" : ">= " + lower + " ms";
+            out.append(String.format("  %-14s %8d%n", range, buckets.get(b)));
+            if (b < BUCKET_LIMITS_MS.length) lower = BUCKET_LIMITS_MS[b];
+        }
+
+        List<Stall> recent;
+        long total;
+        synchronized (stalls) {
+            recent = new ArrayList<>(stalls);
+            total = totalStalls;
+        }
+        out.append(String.format("%nStalls over %d ms: %d", STALL_MS, total));
+        if (total > recent.size()) out.append(" (last ").append(recent.size()).append(" shown)");
+        out.append('\n');
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            Stall s = recent.get(i);
+            out.append(String.format("%n%s  %d ms%n", s.noticed().format(TIME), s.millis()));
+            out.append(format(s.stack(), SHOWN_FRAMES));
+        }
+        return out.toString();
+    }
+
+    private static String format(StackTraceElement[] stack, int frames) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < Math.min(frames, stack.length); i++) out.append("    at ").append(stack[i]).append('\n');
+        if (stack.length > frames) out.append("    … ").append(stack.length - frames).append(" more\n");
+        return out.toString();
+    }
+}
@@ -0,0 +1,216 @@
+package org.example.ugplayer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary cache of track metadata for one library folder, stored next to it as
+ * {@code <folder>.muzik-index} (see {@link #indexFile(Path)} for drive roots). Entries are keyed by absolute path and only trusted while the
+ * file's size and modification time still match, so unchanged files never need to be re-read.
+ *
+ * <p>File layout (big-endian): {@code "MZIX"}, version, entry count, then per entry the path,
+ * size, mtime, title, artist, album and replay gain in dB (NaN if not analyzed yet). Strings are a
+ * length (-1 for null) plus UTF-8 bytes. Version 1 files, without the gain, are still read.
+ */
+public final class LibraryIndex {
+
+    private static final int MAGIC = 0x4D5A4958; // "MZIX"
+    private static final int VERSION = 2;
+    // a mapped file cannot be replaced on Windows until the mapping is garbage collected
+    private static final boolean MAP_ON_LOAD = !System.getProperty("os.name", "").startsWith("Windows");
+
+    private final Path file;
+    private final Map<String, TrackInfo> entries = new ConcurrentHashMap<>();
+    private final Map<String, Float> gains = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    private LibraryIndex(Path file) {
+        this.file = file;
+    }
+
+    /** Loads the index belonging to {@code folder}; a missing or unreadable index yields an empty one. */
+    public static LibraryIndex forFolder(Path folder) {
+        Path abs = folder.toAbsolutePath().normalize();
+        Path file = indexFile(abs);
+        LibraryIndex index = new LibraryIndex(file);
+        try {
+            index.load();
+        } catch (NoSuchFileException e) {
+            // first run for this folder
+        } catch (Exception e) {
+            System.err.println("Ignoring unreadable library index " + file + ": " + e.getMessage());
+            index.entries.clear();
+            index.gains.clear();
+            index.dirty = true;
+        }
+        return index;
+    }
+
+    /**
+     * {@code <folder>.muzik-index} next to the folder. A drive or file system root has no such place,
+     * so its index goes to {@code ~/.muzik/indexes}, named after the root so that roots do not share one.
+     */
+    static Path indexFile(Path abs) {
+        Path name = abs.getFileName();
+        if (name != null && abs.getParent() != null) return abs.resolveSibling(name + ".muzik-index");
+        UUID id = UUID.nameUUIDFromBytes(abs.toString().getBytes(StandardCharsets.UTF_8));
+        return Path.of(System.getProperty("user.home"), ".muzik", "indexes", id + ".muzik-index");
+    }
+
+    /** Returns the cached entry for {@code path} if it still matches the file on disk. */
+    public TrackInfo lookup(Path path, long size, long modified) {
+        TrackInfo cached = entries.get(key(path));
+        if (cached != null && cached.size() == size && cached.modified() == modified) return cached;
+        return null;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void put(TrackInfo track) {
+        if (track.size() < 0 || track.modified() < 0) return;
+        String key = key(track.path());
+        TrackInfo old = entries.put(key, track);
+        // the gain belongs to the audio it was measured on
+        if (old == null || old.size() != track.size() || old.modified() != track.modified()) gains.remove(key);
+        dirty = true;
+    }
+
+    public void remove(Path path) {
+        String key = key(path);
+        gains.remove(key);
+        if (entries.remove(key) != null) dirty = true;
+    }
+
+    /** Replay gain in dB measured for {@code path}, or NaN if it has not been analyzed. */
+    public float gain(Path path) {
+        Float gain = gains.get(key(path));
+        return gain != null ? gain : Float.NaN;
+    }
+
+    /** Stores the gain measured for {@code path}, provided the entry still describes the same file version. */
+    public void putGain(Path path, long size, long modified, float gain) {
+        String key = key(path);
+        TrackInfo t = entries.get(key);
+        if (t == null || t.size() != size || t.modified() != modified) return;
+        gains.put(key, gain);
+        dirty = true;
+    }
+
+    /** Drops entries for files that are no longer part of the library. */
+    public void retainOnly(Collection<Path> paths) {
+        Set<String> keep = new HashSet<>(paths.size() * 2);
+        for (Path p : paths) keep.add(key(p));
+        gains.keySet().retainAll(keep);
+        if (entries.keySet().retainAll(keep)) dirty = true;
+    }
+
+    /** Writes the index if anything changed since it was loaded or last saved. */
+    public synchronized void save() {
+        if (!dirty) return;
+        dirty = false;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                // scan workers and the watcher keep changing the map; the count must match what is written
+                List<TrackInfo> tracks = new ArrayList<>(entries.values());
+                out.writeInt(tracks.size());
+                for (TrackInfo t : tracks) {
+                    String key = key(t.path());
+                    writeString(out, key);
+                    out.writeLong(t.size());
+                    out.writeLong(t.modified());
+                    writeString(out, t.title());
+                    writeString(out, t.artist());
+                    writeString(out, t.album());
+                    Float gain = gains.get(key);
+                    out.writeFloat(gain != null ? gain : Float.NaN);
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            System.err.println("Failed to save library index " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void load() throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = ch.size();
+            if (length > Integer.MAX_VALUE) throw new IOException("index too large");
+            ByteBuffer buf;
+            if (MAP_ON_LOAD) {
+                buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            } else {
+                buf = ByteBuffer.allocate((int) length);
+                while (buf.hasRemaining() && ch.read(buf) >= 0) {
+                    // keep reading
+                }
+                buf.flip();
+            }
+
+            if (buf.getInt() != MAGIC) throw new IOException("not a library index");
+            int version = buf.getInt();
+            if (version != 1 && version != VERSION) throw new IOException("unsupported index version " + version);
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                String path = readString(buf);
+                long size = buf.getLong();
+                long modified = buf.getLong();
+                TrackInfo t = new TrackInfo(Path.of(path), readString(buf), readString(buf), readString(buf), size, modified);
+                entries.put(path, t);
+                float gain = version >= 2 ? buf.getFloat() : Float.NaN;
+                if (!Float.isNaN(gain)) gains.put(path, gain);
+            }
+            if (version != VERSION) dirty = true;
+        }
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
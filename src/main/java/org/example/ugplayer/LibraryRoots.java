@@ -0,0 +1,47 @@
+package org.example.ugplayer;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.prefs.Preferences;
+
+/**
+ * Extra library folders configured by the user, kept in the user's {@link Preferences}. The
+ * {@code songs} folder is always part of the library and is not stored here.
+ */
+final class LibraryRoots {
+
+    private static final String KEY = "libraryRoots";
+    private static final Preferences PREFS = Preferences.userNodeForPackage(LibraryRoots.class);
+
+    private LibraryRoots() {
+    }
+
+    static List<Path> load() {
+        List<Path> roots = new ArrayList<>();
+        for (String line : PREFS.get(KEY, "").split("\n")) {
+            if (!line.isBlank()) roots.add(Path.of(line.trim()));
+        }
+        return roots;
+    }
+
+    static void add(Path root) {
+        List<Path> roots = load();
+        Path normalized = root.toAbsolutePath().normalize();
+        if (!roots.contains(normalized)) {
+            roots.add(normalized);
+            store(roots);
+        }
+    }
+
+    static void remove(Path root) {
+        List<Path> roots = load();
+        if (roots.remove(root)) store(roots);
+    }
+
+    private static void store(List<Path> roots) {
+        StringBuilder sb = new StringBuilder();
+        for (Path p : roots) sb.append(p).append('\n');
+        PREFS.put(KEY, sb.toString());
+    }
+}
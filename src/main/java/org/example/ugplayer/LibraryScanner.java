@@ -0,0 +1,219 @@
+package org.example.ugplayer;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Reads metadata for many files on bounded per-device worker pools (see {@link DeviceLimits}).
+ * Library roots are walked recursively by {@link LibraryWalker} on a fork/join pool. Files whose
+ * size and mtime match the {@link LibraryIndex} are taken from it as-is; others are parsed from
+ * file headers by {@link TagReader}, and the JavaFX probe is only used for files the parser rejects.
+ */
+public class LibraryScanner {
+
+    /** Per-root progress, called from worker threads. {@code total} is -1 while the root is still being listed. */
+    public interface Progress {
+        void update(Path root, int scanned, int total);
+    }
+
+    /** Receives a root's files as they are found and read, from worker threads. */
+    public interface Feed {
+        /** Every file found under the root, in library order, before any of them is read. */
+        void listed(List<Path> files);
+
+        /** Tags of one file, or {@code null} if neither the parser nor the probe could read it. */
+        void read(Path file, TrackInfo info);
+
+        /** A feed that ignores everything, for callers that only want the result. */
+        Feed NONE = new Feed() {
+            @Override
+            public void listed(List<Path> files) {
+            }
+
+            @Override
+            public void read(Path file, TrackInfo info) {
+            }
+        };
+    }
+
+    /** Library order: full path, case-insensitive. */
+    public static final Comparator<Path> PATH_ORDER = Comparator.comparing(Path::toString, String.CASE_INSENSITIVE_ORDER);
+
+    private final DeviceLimits devices = new DeviceLimits();
+    private final ForkJoinPool walkPool;
+    private final MediaProbe probe;
+
+    public LibraryScanner() {
+        this(Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())), 4);
+    }
+
+    public LibraryScanner(int walkParallelism, int maxConcurrentProbes) {
+        walkPool = new ForkJoinPool(walkParallelism, pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("library-walk-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+        probe = new MediaProbe(maxConcurrentProbes);
+    }
+
+    /**
+     * Walks {@code root} recursively and scans every file accepted by {@code filter}. The result
+     * is sorted by path; files that neither the parser nor the probe can read are left out. The
+     * index is updated with re-read files, pruned of files no longer under the root, and saved if
+     * anything changed. {@code dirs} receives every directory found, e.g. for a watcher, and
+     * {@code feed} the file list and then each file's tags as soon as they are known.
+     */
+    public CompletableFuture<List<TrackInfo>> scanRoot(Path root, LibraryIndex index, Predicate<Path> filter,
+                                                       Consumer<List<Path>> dirs, Progress progress, Feed feed) {
+        DeviceLimits.Device device = devices.forPath(root);
+        progress.update(root, 0, -1);
+        return CompletableFuture
+                .supplyAsync(() -> new LibraryWalker(root, filter, device.permits()).invoke(), walkPool)
+                .thenCompose(walk -> {
+                    dirs.accept(walk.dirs());
+                    List<Path> files = new ArrayList<>(walk.files());
+                    files.sort(PATH_ORDER);
+                    feed.listed(files);
+                    return scanFiles(files, index, true, (done, total) -> progress.update(root, done, total), feed);
+                });
+    }
+
+    /** Rescans a handful of changed files; entries for other files stay in the index. */
+    public CompletableFuture<List<TrackInfo>> rescan(List<Path> files, LibraryIndex index) {
+        return scanFiles(files, index, false, (done, total) -> {
+        }, Feed.NONE);
+    }
+
+    private CompletableFuture<List<TrackInfo>> scanFiles(List<Path> files, LibraryIndex index, boolean prune,
+                                                         BiConsumer<Integer, Integer> progress, Feed feed) {
+        resetPeakHeap();
+        long start = System.nanoTime();
+        AtomicInteger probed = new AtomicInteger();
+        AtomicInteger cached = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        int total = files.size();
+        progress.accept(0, total);
+
+        List<CompletableFuture<TrackInfo>> pending = new ArrayList<>(files.size());
+        for (Path file : files) {
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                TrackInfo info = readIndexed(file, index, cached, probed);
+                feed.read(file, info);
+                progress.accept(done.incrementAndGet(), total);
+                return info;
+            }, devices.forPath(file).executor()));
+        }
+
+        return CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            List<TrackInfo> results = new ArrayList<>(files.size());
+            for (CompletableFuture<TrackInfo> f : pending) {
+                TrackInfo info = f.join();
+                if (info != null) results.add(info);
+            }
+            if (prune) index.retainOnly(files);
+            index.save();
+            if (!files.isEmpty()) report(files.size(), cached.get(), probed.get(), System.nanoTime() - start);
+            return results;
+        });
+    }
+
+    private TrackInfo readIndexed(Path file, LibraryIndex index, AtomicInteger cached, AtomicInteger probed) {
+        long start = System.nanoTime();
+        PlayerEvents.ScanFile event = new PlayerEvents.ScanFile();
+        event.begin();
+        TrackInfo info = readIndexed(file, index, event, cached, probed);
+        event.path = file.toString();
+        event.commit();
+        Metrics.timer(event.fromIndex ? "scan.file.indexed" : "scan.file.read").recordSince(start);
+        return info;
+    }
+
+    private TrackInfo readIndexed(Path file, LibraryIndex index, PlayerEvents.ScanFile event, AtomicInteger cached, AtomicInteger probed) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            System.err.println("Failed to load: " + file.getFileName());
+            return null;
+        }
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+
+        TrackInfo hit = index.lookup(file, size, modified);
+        if (hit != null) {
+            cached.incrementAndGet();
+            event.fromIndex = true;
+            return hit;
+        }
+        TrackInfo info = readOne(file, probed);
+        if (info == null) return null;
+        info = info.withFileStamp(size, modified);
+        index.put(info);
+        return info;
+    }
+
+    /** Reads a single file on the calling thread; returns {@code null} if it is unreadable. */
+    public TrackInfo readOne(Path file) {
+        return readOne(file, new AtomicInteger());
+    }
+
+    private TrackInfo readOne(Path file, AtomicInteger probed) {
+        try {
+            return TagReader.read(file);
+        } catch (Exception parseError) {
+            try {
+                probed.incrementAndGet();
+                return probe.probe(file);
+            } catch (Exception e) {
+                System.err.println("Failed to load: " + file.getFileName());
+                return null;
+            }
+        }
+    }
+
+    /** The per-device pools, for other bulk file work such as the duplicate finder. */
+    DeviceLimits devices() {
+        return devices;
+    }
+
+    public void shutdown() {
+        walkPool.shutdownNow();
+        devices.shutdown();
+    }
+
+    private static void report(int files, int cached, int probed, long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos / 1e9, 1e-9);
+        System.out.printf("Scanned %d files in %.0f ms (%.0f files/s, %d from index, %d probed), peak heap %.1f MB%n",
+                files, elapsedNanos / 1e6, files / seconds, cached, probed, peakHeapBytes() / (1024.0 * 1024.0));
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.ugplayer;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.ListView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * As-you-type filter for the song list. Keeps a {@link SearchIndex} in step with the {@link TrackStore}
+ * and runs queries on a single background thread, so the FX thread only hands over the query and
+ * applies the matching ids. Every keystroke bumps a generation; a query that is overtaken before it
+ * runs, or before its result reaches the FX thread, is dropped.
+ *
+ * <p>The list view shows the store's titles while the query is empty and the filtered results
+ * otherwise, in library order. Callers map list indexes to tracks with {@link #idAt(int)} and
+ * {@link #select(int)}. Must be used from the FX thread.
+ */
+final class LibrarySearch implements TrackStore.Listener {
+
+    private final TrackStore tracks;
+    private final ListView<String> view;
+    private final SearchIndex index = new SearchIndex();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "library-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong generation = new AtomicLong();
+    private final Results results = new Results();
+
+    // index updates collected on the FX thread and handed to the worker in one task
+    private List<Runnable> pendingUpdates = new ArrayList<>();
+    private String query = "";
+
+    LibrarySearch(TrackStore tracks, ListView<String> view) {
+        this.tracks = tracks;
+        this.view = view;
+        tracks.addListener(this);
+        view.setItems(tracks.titles());
+    }
+
+    boolean isActive() {
+        return !query.isBlank();
+    }
+
+    /** Filters the list by {@code text}; an empty query shows the whole library again. */
+    void search(String text) {
+        query = text == null ? "" : text;
+        long gen = generation.incrementAndGet();
+        if (!isActive()) {
+            int selected = selectedId();
+            view.setItems(tracks.titles());
+            results.set(new int[0]);
+            select(selected);
+            return;
+        }
+
+        final String q = query;
+        worker.execute(() -> {
+            if (gen != generation.get()) return;
+            long start = System.nanoTime();
+            int[] ids = index.search(q);
+            long micros = (System.nanoTime() - start) / 1000;
+            if (micros > 1000) System.out.println("Search \"" + q + "\" took " + micros + " µs over " + index.size() + " tracks");
+            Platform.runLater(() -> {
+                if (gen != generation.get()) return;
+                show(ids == null ? new int[0] : ids);
+            });
+        });
+    }
+
+    /** Track id at {@code index} of the list as currently shown, or -1. */
+    int idAt(int listIndex) {
+        if (showingResults()) return listIndex >= 0 && listIndex < results.size ? results.ids[listIndex] : -1;
+        return listIndex >= 0 && listIndex < tracks.size() ? tracks.idAt(listIndex) : -1;
+    }
+
+    /** Selects the row showing track {@code id}; clears the selection if it is filtered out. */
+    void select(int id) {
+        int i = indexOf(id);
+        if (i >= 0) view.getSelectionModel().select(i);
+        else view.getSelectionModel().clearSelection();
+    }
+
+    int indexOf(int id) {
+        if (id < 0) return -1;
+        if (!showingResults()) return tracks.rowOf(id);
+        for (int i = 0; i < results.size; i++) if (results.ids[i] == id) return i;
+        return -1;
+    }
+
+    private boolean showingResults() {
+        return view.getItems() == results;
+    }
+
+    int selectedId() {
+        return idAt(view.getSelectionModel().getSelectedIndex());
+    }
+
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private void show(int[] ids) {
+        int selected = selectedId();
+        results.set(inLibraryOrder(ids));
+        if (view.getItems() != results) view.setItems(results);
+        select(selected);
+    }
+
+    /** Re-orders ascending ids into row order, dropping tracks removed since the query ran. */
+    private int[] inLibraryOrder(int[] ids) {
+        int n = 0;
+        if (ids.length > tracks.size() / 16) {
+            // large result: one pass over the rows is cheaper than sorting
+            BitSet wanted = new BitSet();
+            for (int id : ids) wanted.set(id);
+            int[] out = new int[ids.length];
+            for (int row = 0; row < tracks.size() && n < out.length; row++) {
+                int id = tracks.idAt(row);
+                if (wanted.get(id)) out[n++] = id;
+            }
+            return Arrays.copyOf(out, n);
+        }
+        long[] byRow = new long[ids.length];
+        for (int id : ids) {
+            int row = tracks.rowOf(id);
+            if (row >= 0) byRow[n++] = ((long) row << 32) | id;
+        }
+        Arrays.sort(byRow, 0, n);
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++) out[i] = (int) byRow[i];
+        return out;
+    }
+
+    // === keeping the index in step with the store ===
+
+    @Override
+    public void changed(int id) {
+        String title = tracks.title(id);
+        String artist = tracks.artist(id);
+        String album = tracks.album(id);
+        queue(() -> index.put(id, title, artist, album));
+    }
+
+    @Override
+    public void removed(int id) {
+        // take it out of the visible results right away; the query re-runs once the index caught up
+        int i = showingResults() ? indexOf(id) : -1;
+        if (i >= 0) results.drop(i);
+        queue(() -> index.remove(id));
+    }
+
+    @Override
+    public void cleared() {
+        results.set(new int[0]);
+        queue(index::clear);
+    }
+
+    private void queue(Runnable update) {
+        if (pendingUpdates.isEmpty()) Platform.runLater(this::flushUpdates);
+        pendingUpdates.add(update);
+    }
+
+    private void flushUpdates() {
+        List<Runnable> batch = pendingUpdates;
+        pendingUpdates = new ArrayList<>();
+        worker.execute(() -> batch.forEach(Runnable::run));
+        if (isActive()) search(query);
+    }
+
+    /** Titles of the matching tracks; a zero-copy view over their ids. */
+    private final class Results extends ObservableListBase<String> {
+        private int[] ids = new int[0];
+        private int size;
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return tracks.title(ids[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        void set(int[] newIds) {
+            // tracks may already be gone from the store (after a clear), so removed titles are best effort
+            List<String> old = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) old.add(tracks.contains(ids[i]) ? tracks.title(ids[i]) : "");
+            ids = newIds;
+            size = newIds.length;
+            beginChange();
+            if (!old.isEmpty()) nextRemove(0, old);
+            if (size > 0) nextAdd(0, size);
+            endChange();
+        }
+
+        /** Drops a track that was already removed from the store. */
+        void drop(int index) {
+            String old = "";
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            beginChange();
+            nextRemove(index, old);
+            endChange();
+        }
+    }
+}
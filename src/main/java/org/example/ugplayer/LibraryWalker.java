@@ -0,0 +1,98 @@
+package org.example.ugplayer;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.function.Predicate;
+
+/**
+ * Fork/join traversal of one library root. Each directory is listed by its own task while holding
+ * a permit of the root's device, and subdirectories are forked so sibling folders
+ * ({@code Artist/Album}) are listed in parallel. Symbolic links to directories are not followed.
+ */
+final class LibraryWalker extends RecursiveTask<LibraryWalker.Result> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** Audio files and directories found below the root (the root included in {@code dirs}). */
+    record Result(List<Path> files, List<Path> dirs) {
+    }
+
+    private final Path dir;
+    private final Predicate<Path> filter;
+    private final Semaphore permits;
+
+    LibraryWalker(Path dir, Predicate<Path> filter, Semaphore permits) {
+        this.dir = dir;
+        this.filter = filter;
+        this.permits = permits;
+    }
+
+    @Override
+    protected Result compute() {
+        List<Path> files = new ArrayList<>();
+        List<Path> dirs = new ArrayList<>();
+        List<LibraryWalker> children = new ArrayList<>();
+        dirs.add(dir);
+
+        acquire();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    LibraryWalker child = new LibraryWalker(entry, filter, permits);
+                    child.fork();
+                    children.add(child);
+                } else if (filter.test(entry)) {
+                    files.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot list " + dir + ": " + e.getMessage());
+        } finally {
+            permits.release();
+        }
+
+        for (LibraryWalker child : children) {
+            Result r = child.join();
+            files.addAll(r.files());
+            dirs.addAll(r.dirs());
+        }
+        return new Result(files, dirs);
+    }
+
+    private void acquire() {
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                private boolean held;
+
+                @Override
+                public boolean block() throws InterruptedException {
+                    if (!held) {
+                        permits.acquire();
+                        held = true;
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    if (!held) held = permits.tryAcquire();
+                    return held;
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // still take the permit so the release() in compute() stays balanced
+            permits.acquireUninterruptibly();
+        }
+    }
+}
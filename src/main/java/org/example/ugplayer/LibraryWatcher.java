@@ -0,0 +1,174 @@
+package org.example.ugplayer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Watches library folders (recursively) and reports file changes in coalesced batches. Events are
+ * collected until the library has been quiet for {@code QUIET_MILLIS} (or {@code MAX_DELAY_MILLIS}
+ * passed during a long copy), and only the last state of each path is reported. Folders created
+ * later, such as a newly copied album, are registered as they appear.
+ */
+final class LibraryWatcher implements Closeable {
+
+    private static final long QUIET_MILLIS = 500;
+    private static final long MAX_DELAY_MILLIS = 3000;
+
+    interface Listener {
+        /**
+         * Called on the watcher thread with created/modified files and deleted paths. A deleted
+         * path may be a whole folder, in which case everything below it is gone.
+         */
+        void onChanges(Set<Path> changed, Set<Path> deleted);
+
+        /** Called when the OS dropped events, so the library has to be rescanned in full. */
+        void onOverflow();
+    }
+
+    private final Predicate<Path> filter;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    // kept until the folder's own delete event arrives, which can come after its key was invalidated
+    private final Set<Path> knownDirs = ConcurrentHashMap.newKeySet();
+    private final Thread thread;
+
+    LibraryWatcher(Predicate<Path> filter, Listener listener) throws IOException {
+        this.filter = filter;
+        this.listener = listener;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        thread = new Thread(this::run, "library-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Starts watching the given directories (not their subdirectories; pass every level). */
+    void watch(Collection<Path> dirs) {
+        for (Path dir : dirs) {
+            try {
+                watchedDirs.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), dir);
+                knownDirs.add(dir);
+            } catch (IOException | ClosedWatchServiceException e) {
+                System.err.println("Cannot watch " + dir + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void run() {
+        // true = exists (created/modified), false = deleted; insertion order keeps batches stable
+        Map<Path, Boolean> pending = new LinkedHashMap<>();
+        long firstPending = 0;
+        try {
+            while (true) {
+                WatchKey key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    Path dir = watchedDirs.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            pending.clear();
+                            listener.onOverflow();
+                            continue;
+                        }
+                        if (dir == null) continue;
+                        Path path = dir.resolve((Path) event.context());
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                                && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                            for (Path file : registerTree(path)) pending.put(file, true);
+                        } else if (filter.test(path) || knownDirs.contains(path)) {
+                            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) knownDirs.removeIf(d -> d.startsWith(path));
+                            pending.remove(path);
+                            pending.put(path, event.kind() != StandardWatchEventKinds.ENTRY_DELETE);
+                        } else {
+                            continue;
+                        }
+                        if (firstPending == 0) firstPending = System.currentTimeMillis();
+                    }
+                    if (!key.reset()) watchedDirs.remove(key);
+                }
+
+                boolean quiet = key == null;
+                boolean overdue = !pending.isEmpty() && System.currentTimeMillis() - firstPending >= MAX_DELAY_MILLIS;
+                if (!pending.isEmpty() && (quiet || overdue)) {
+                    flush(pending);
+                    pending.clear();
+                    firstPending = 0;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /** Registers a new folder and everything below it; returns the audio files already inside. */
+    private List<Path> registerTree(Path top) {
+        List<Path> files = new ArrayList<>();
+        List<Path> dirs = new ArrayList<>();
+        try {
+            Files.walkFileTree(top, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    dirs.add(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (filter.test(file)) files.add(file);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Cannot walk " + top + ": " + e.getMessage());
+        }
+        watch(dirs);
+        return files;
+    }
+
+    private void flush(Map<Path, Boolean> pending) {
+        Set<Path> changed = new LinkedHashSet<>();
+        Set<Path> deleted = new LinkedHashSet<>();
+        for (Map.Entry<Path, Boolean> e : pending.entrySet()) {
+            // re-check the disk: a create followed by a quick rename only leaves the final name
+            if (e.getValue() && Files.isRegularFile(e.getKey())) changed.add(e.getKey());
+            else if (!Files.exists(e.getKey())) deleted.add(e.getKey());
+        }
+        try {
+            listener.onChanges(changed, deleted);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+        thread.interrupt();
+    }
+}
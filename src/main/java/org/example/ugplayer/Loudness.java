@@ -0,0 +1,162 @@
+package org.example.ugplayer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Integrated loudness (LUFS) after ITU-R BS.1770-4: K-weighting, mean square per 400 ms block with
+ * 75% overlap, then an absolute gate at -70 LUFS and a relative gate 10 LU below the ungated mean.
+ *
+ * <p>The audio is streamed once through {@link WavReader}. Instead of keeping every block for the
+ * two-pass gating, block energies are counted in a fixed histogram of {@code BINS_PER_LU} bins per
+ * LU from -70 to +10 LUFS, each holding a block count and an energy sum; both gates are then
+ * evaluated over the histogram. Memory use is constant and the result is exact up to the bin width
+ * at the relative gate's edge.
+ */
+final class Loudness {
+
+    private static final double ABSOLUTE_GATE = -70;
+    private static final double RELATIVE_GATE = -10;
+    private static final double MAX_LOUDNESS = 10;
+    private static final int BINS_PER_LU = 100;
+    private static final int BINS = (int) ((MAX_LOUDNESS - ABSOLUTE_GATE) * BINS_PER_LU);
+
+    private Loudness() {
+    }
+
+    /** Integrated loudness of {@code file} in LUFS, or {@code -infinity} if it is silent throughout. */
+    static double integrated(Path file) throws IOException {
+        try (WavReader wav = WavReader.open(file)) {
+            int channels = wav.channels();
+            KWeighting[] filters = new KWeighting[channels];
+            double[] weights = new double[channels];
+            for (int c = 0; c < channels; c++) {
+                filters[c] = new KWeighting(wav.sampleRate());
+                weights[c] = channelWeight(c, channels);
+            }
+
+            // a 400 ms block is four 100 ms steps; the last four step energies are kept in a ring
+            int step = Math.max(1, wav.sampleRate() / 10);
+            double[] steps = new double[4];
+            int stepsSeen = 0;
+            double stepSum = 0;
+            int inStep = 0;
+
+            long[] counts = new long[BINS];
+            double[] energies = new double[BINS];
+
+            float[] samples = new float[4096 * channels];
+            for (int n; (n = wav.read(samples)) > 0; ) {
+                for (int f = 0, i = 0; f < n; f++) {
+                    for (int c = 0; c < channels; c++, i++) {
+                        double y = filters[c].apply(samples[i]);
+                        stepSum += weights[c] * y * y;
+                    }
+                    if (++inStep == step) {
+                        steps[stepsSeen++ & 3] = stepSum / step;
+                        stepSum = 0;
+                        inStep = 0;
+                        if (stepsSeen >= 4) {
+                            double energy = (steps[0] + steps[1] + steps[2] + steps[3]) / 4;
+                            int bin = bin(loudness(energy));
+                            if (bin >= 0) {
+                                counts[bin]++;
+                                energies[bin] += energy;
+                            }
+                        }
+                    }
+                }
+            }
+            return gate(counts, energies);
+        }
+    }
+
+    /** Gain in dB that brings {@code lufs} to {@code target}, limited to {@code [minDb, maxDb]}. */
+    static double gainDb(double lufs, double target, double minDb, double maxDb) {
+        if (Double.isInfinite(lufs) || Double.isNaN(lufs)) return 0;
+        return Math.max(minDb, Math.min(maxDb, target - lufs));
+    }
+
+    private static double gate(long[] counts, double[] energies) {
+        long count = 0;
+        double energy = 0;
+        for (int b = 0; b < BINS; b++) {
+            count += counts[b];
+            energy += energies[b];
+        }
+        if (count == 0) return Double.NEGATIVE_INFINITY;
+
+        int from = Math.max(0, bin(loudness(energy / count) + RELATIVE_GATE));
+        count = 0;
+        energy = 0;
+        for (int b = from; b < BINS; b++) {
+            count += counts[b];
+            energy += energies[b];
+        }
+        return count == 0 ? Double.NEGATIVE_INFINITY : loudness(energy / count);
+    }
+
+    private static double loudness(double energy) {
+        return -0.691 + 10 * Math.log10(energy);
+    }
+
+    /** Histogram bin of a block loudness; -1 below the absolute gate, blocks above the top go to the last bin. */
+    private static int bin(double lufs) {
+        if (!(lufs > ABSOLUTE_GATE)) return -1;
+        return (int) Math.min(BINS - 1, (lufs - ABSOLUTE_GATE) * BINS_PER_LU);
+    }
+
+    /** BS.1770 channel weights for the usual WAV order L, R, C, LFE, Ls, Rs: LFE is left out, surrounds count 1.41. */
+    private static double channelWeight(int channel, int channels) {
+        if (channels < 6) return channel < 3 ? 1 : 1.41;
+        if (channel == 3) return 0;
+        return channel < 3 ? 1 : 1.41;
+    }
+
+    /**
+     * The two-stage K-weighting filter (high shelf then high pass), with coefficients derived for the
+     * track's sample rate from the analog prototypes, so it matches the published 48 kHz coefficients.
+     */
+    private static final class KWeighting {
+        private final double b0, b1, b2, a1, a2;
+        private final double d1, d2;
+        private double x1, x2, y1, y2;
+        private double u1, u2, z1, z2;
+
+        KWeighting(int sampleRate) {
+            double f0 = 1681.974450955533;
+            double gain = 3.999843853973347;
+            double q = 0.7071752369554196;
+            double k = Math.tan(Math.PI * f0 / sampleRate);
+            double vh = Math.pow(10, gain / 20);
+            double vb = Math.pow(vh, 0.4996667741545416);
+            double a0 = 1 + k / q + k * k;
+            b0 = (vh + vb * k / q + k * k) / a0;
+            b1 = 2 * (k * k - vh) / a0;
+            b2 = (vh - vb * k / q + k * k) / a0;
+            a1 = 2 * (k * k - 1) / a0;
+            a2 = (1 - k / q + k * k) / a0;
+
+            f0 = 38.13547087602444;
+            q = 0.5003270373238773;
+            k = Math.tan(Math.PI * f0 / sampleRate);
+            double d0 = 1 + k / q + k * k;
+            d1 = 2 * (k * k - 1) / d0;
+            d2 = (1 - k / q + k * k) / d0;
+        }
+
+        double apply(double x) {
+            double y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2;
+            x2 = x1;
+            x1 = x;
+            y2 = y1;
+            y1 = y;
+            double z = y - 2 * u1 + u2 - d1 * z1 - d2 * z2;
+            u2 = u1;
+            u1 = y;
+            z2 = z1;
+            z1 = z;
+            return z;
+        }
+    }
+}
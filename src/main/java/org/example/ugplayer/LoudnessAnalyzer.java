@@ -0,0 +1,78 @@
+package org.example.ugplayer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the loudness of library tracks in the background and stores the resulting replay gain in
+ * their {@link LibraryIndex}. One low-priority thread works through the tracks that have no gain
+ * yet, one file at a time, and saves the index every {@code SAVE_EVERY} tracks, so an interrupted
+ * run picks up where it stopped on the next start.
+ *
+ * <p>The gain brings each track to {@code -Dmuzik.targetLufs} (default -18 LUFS), limited to
+ * {@code MIN_GAIN_DB}..{@code MAX_GAIN_DB}, and is applied the next time a track is loaded rather
+ * than while it plays. Only WAV files can be decoded for now; other tracks keep unity gain.
+ */
+final class LoudnessAnalyzer {
+
+    static final double TARGET_LUFS = Double.parseDouble(System.getProperty("muzik.targetLufs", "-18"));
+    private static final double MIN_GAIN_DB = -20;
+    private static final double MAX_GAIN_DB = 12;
+    private static final int SAVE_EVERY = 25;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "loudness");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /** Queues the tracks of {@code files} that {@code index} has no gain for yet. */
+    void analyze(List<Path> files, LibraryIndex index) {
+        int queuedIn = generation.get();
+        worker.execute(() -> run(files, index, queuedIn));
+    }
+
+    /** Drops everything queued so far; the track being measured is finished first. */
+    void cancel() {
+        generation.incrementAndGet();
+    }
+
+    void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    /** Linear volume factor for a gain in dB; unknown gains are unity. */
+    static double factor(float gainDb) {
+        return Float.isNaN(gainDb) ? 1 : Math.pow(10, gainDb / 20.0);
+    }
+
+    private void run(List<Path> files, LibraryIndex index, int queuedIn) {
+        long start = System.nanoTime();
+        int measured = 0;
+        for (Path file : files) {
+            if (generation.get() != queuedIn || Thread.currentThread().isInterrupted()) break;
+            if (!Float.isNaN(index.gain(file)) || !file.getFileName().toString().toLowerCase().endsWith(".wav")) continue;
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                double lufs = Loudness.integrated(file);
+                float gain = (float) Loudness.gainDb(lufs, TARGET_LUFS, MIN_GAIN_DB, MAX_GAIN_DB);
+                index.putGain(file, attrs.size(), attrs.lastModifiedTime().toMillis(), gain);
+                if (++measured % SAVE_EVERY == 0) index.save();
+            } catch (Exception e) {
+                System.err.println("Cannot measure loudness of " + file.getFileName() + ": " + e.getMessage());
+            }
+        }
+        if (measured > 0) {
+            index.save();
+            System.out.printf("Loudness: measured %d tracks in %.1f s%n", measured, (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.ugplayer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * M3U and M3U8 playlists. Reading streams line by line and hands over entries in chunks; the title
+ * from an {@code #EXTINF} line belongs to the path after it, other comments are skipped. Relative
+ * paths are resolved against the playlist's folder, {@code file:} URIs are accepted and other URLs
+ * (streams) are left out. {@code .m3u8} is UTF-8; a {@code .m3u} is read as UTF-8 when its start
+ * decodes as such and as Latin-1 otherwise. Both are written as UTF-8.
+ */
+final class M3u {
+
+    private static final int SNIFF_BYTES = 64 * 1024;
+
+    private M3u() {
+    }
+
+    static boolean isPlaylist(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".m3u") || name.endsWith(".m3u8");
+    }
+
+    /** Reads {@code file}, passing entries to {@code sink} {@code chunk} at a time. Returns the count. */
+    static int read(Path file, int chunk, Consumer<List<Playlist.Entry>> sink) throws IOException {
+        Path base = file.toAbsolutePath().getParent();
+        int count = 0;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(Files.newInputStream(file), charset(file)), 1 << 16)) {
+            List<Playlist.Entry> entries = new ArrayList<>(chunk);
+            String title = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.strip();
+                if (!line.isEmpty() && line.charAt(0) == '\uFEFF') line = line.substring(1);
+                if (line.isEmpty()) continue;
+                if (line.startsWith("#")) {
+                    if (line.startsWith("#EXTINF:")) {
+                        int comma = line.indexOf(',');
+                        title = comma >= 0 ? line.substring(comma + 1).strip() : null;
+                    }
+                    continue;
+                }
+                Path path = resolve(base, line);
+                if (path != null) {
+                    entries.add(new Playlist.Entry(path, title != null && !title.isEmpty() ? title : null));
+                    if (entries.size() == chunk) {
+                        sink.accept(entries);
+                        count += entries.size();
+                        entries = new ArrayList<>(chunk);
+                    }
+                }
+                title = null;
+            }
+            if (!entries.isEmpty()) sink.accept(entries);
+            return count + entries.size();
+        }
+    }
+
+    /** Writes an extended M3U; paths below the playlist's folder are written relative to it. */
+    static void write(Path file, List<Playlist.Entry> entries) throws IOException {
+        Path base = file.toAbsolutePath().getParent();
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("#EXTM3U\n");
+            for (Playlist.Entry e : entries) {
+                String title = e.title() != null ? e.title() : e.path().getFileName().toString();
+                out.write("#EXTINF:-1," + title.replace('\n', ' ') + "\n");
+                Path p = e.path();
+                out.write((base != null && p.startsWith(base) ? base.relativize(p) : p).toString());
+                out.write('\n');
+            }
+        }
+    }
+
+    private static Path resolve(Path base, String location) {
+        try {
+            if (location.regionMatches(true, 0, "file:", 0, 5)) return Path.of(URI.create(location)).normalize();
+            if (location.indexOf("://") > 0) return null;
+            if (File.separatorChar == '/') location = location.replace('\\', '/');
+            Path p = Path.of(location);
+            return (p.isAbsolute() || base == null ? p : base.resolve(p)).normalize();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Skipping playlist entry " + location + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Charset charset(Path file) throws IOException {
+        if (file.getFileName().toString().toLowerCase().endsWith(".m3u8")) return StandardCharsets.UTF_8;
+        byte[] start;
+        try (InputStream in = Files.newInputStream(file)) {
+            start = in.readNBytes(SNIFF_BYTES);
+        }
+        // a multi-byte character cut off at the end of the sample does not count against UTF-8
+        int end = start.length;
+        int back = 0;
+        while (back < 3 && end - back > 0 && (start[end - back - 1] & 0xC0) == 0x80) back++;
+        if (end - back > 0 && (start[end - back - 1] & 0xC0) == 0xC0) end -= back + 1;
+        try {
+            StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(start, 0, end));
+            return StandardCharsets.UTF_8;
+        } catch (CharacterCodingException e) {
+            return StandardCharsets.ISO_8859_1;
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package org.example.ugplayer;
 
+import javafx.animation.Animation;
 import javafx.animation.Interpolator;
-import javafx.animation.RotateTransition;
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.PauseTransition;
+import javafx.animation.Timeline;
 import javafx.application.Application;
-import javafx.collections.MapChangeListener;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.CacheHint;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
@@ -13,42 +20,112 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
-import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.ImagePattern;
 import javafx.scene.shape.Circle;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
 
 public class MainUI extends Application {
 
-    public static MainUI instance;
-    private final List<URL> songURLs = new ArrayList<>();
-    private final List<String> songTitles = new ArrayList<>();
-    private final List<String> songArtists = new ArrayList<>();
+    private static final List<String> SUPPORTED_FORMATS = List.of(".mp3", ".m4a", ".aac", ".wav");
+    private final TrackStore tracks = new TrackStore();
+    private final LibraryScanner scanner = new LibraryScanner();
+    // cover sizes: the 130px-radius CD circle and the mini player's 70px square
+    private static final int CD_ART_PX = 260;
+    private static final int MINI_ART_PX = 70;
+    private final ArtCache artCache = new ArtCache();
+    private final Waveforms waveforms = new Waveforms();
+    // === loudness: tracks are measured in the background, the gain is applied when a track is loaded ===
+    private final LoudnessAnalyzer loudness = new LoudnessAnalyzer();
+    private boolean normalizeVolume = Boolean.parseBoolean(System.getProperty("muzik.normalize", "true"));
+    // === diagnostics: a running flight recording, and the wait from pressing play to hearing audio ===
+    private final Diagnostics diagnostics = new Diagnostics();
+    private final FxWatchdog watchdog = new FxWatchdog();
+    private PlayerEvents.FirstAudio firstAudio;
+    private long firstAudioStart;
     Label vol = new Label("🔊");
     private Circle albumCover;
     private Circle centerHoleGray;
     private Circle centerHoleWhite;
     private ListView<String> songListView;
+    private TextField searchField;
+    private LibrarySearch librarySearch;
     private Label songTitleLabel;
     private Label artistLabel;
     private Button playButton, pauseButton, nextButton, prevButton;
     private Slider volumeSlider;
-    private RotateTransition rotateTransition;
-    private MediaPlayer mediaPlayer;
-    private int currentSongIndex = 0;
+    // === CD animation: one timeline at a capped frame rate, paused while the window is minimized or hidden ===
+    private static final int CD_FPS = Integer.getInteger("muzik.cdFps", 60);
+    private static final int LOW_POWER_FPS = Integer.getInteger("muzik.lowPowerFps", 15);
+    private StackPane disc;
+    private Timeline rotation;
+    private boolean lowPower = Boolean.getBoolean("muzik.lowPower");
+    private boolean rotationWanted;
+    private boolean windowVisible = true;
+    private final CpuMeter cpu = new CpuMeter();
+    private final PlaybackBus playback = new PlaybackBus(Integer.getInteger("muzik.positionHz", 4));
+    // === player pool: neighbours are prepared once skipping settles, the next one also shortly before the end ===
+    private static final double PREROLL_SECONDS = 5;
+    private final PlayerPool players = new PlayerPool(3);
+    private final PauseTransition neighbourDelay = new PauseTransition(Duration.millis(800));
+    private long endOfMediaNanos;
+    // === play queue: Up Next, shuffle, repeat and the history Previous walks back through ===
+    private final PlayQueue queue = new PlayQueue(tracks, RandomGenerator.getDefault());
+    // === skip coalescing: rapid next/prev presses only move the target until input is quiet ===
+    private final PauseTransition skipDelay = new PauseTransition(Duration.millis(200));
+    private int pendingSkipId = -1;
+    // === play history: every track left counts as played or skipped, see logPlay ===
+    private final PlayLog playLog = new PlayLog();
+    private static final int STATS_ROWS = 100;
+    // === playlists: one window per open playlist, by file ===
+    private final Map<Path, PlaylistWindow> playlistWindows = new HashMap<>();
+    private int currentTrackId = -1;
+    private int currentRowHint = 0;
     private Scene scene;
     private MiniPlayerUI miniPlayer;
+    private int scanGeneration = 0;
+    // === scan results reach the list once per frame through this; replaced for each generation ===
+    private ScanFeed scanFeed;
+    private final List<Path> libraryRoots = new ArrayList<>();
+    private final Map<Path, LibraryIndex> libraryIndexes = new HashMap<>();
+    private LibraryWatcher libraryWatcher;
+    private Label scanStatusLabel;
+    private HBox importBox;
+    private ProgressBar importBar;
+    private Label importLabel;
+    private SongImport songImport;
+    private DuplicateFinder duplicateFinder;
+    private final Map<Path, int[]> scanProgress = new ConcurrentHashMap<>();
+    private final AtomicBoolean scanProgressQueued = new AtomicBoolean();
 
     public static void main(String[] args) {
         launch(args);
@@ -56,26 +133,42 @@ public class MainUI extends Application {
 
     @Override
     public void start(Stage primaryStage) {
-        instance = this;
-
+        watchdog.start();
         // === CD COVER ===
         albumCover = new Circle(130, Color.web("#c9c9ca"));
         albumCover.setStroke(Color.DARKGRAY);
         albumCover.setStrokeWidth(3);
-        albumCover.setStyle("-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.3), 15, 0.6, 0, 3);");
 
         centerHoleGray = new Circle(30, Color.web("#b9b9b9"));
         centerHoleWhite = new Circle(23, Color.WHITE);
 
-        StackPane cdPane = new StackPane(albumCover, centerHoleGray, centerHoleWhite);
+        // the shadow sits still under the spinning disc, so its blur is rendered once instead of every frame
+        Circle discShadow = new Circle(131.5, Color.web("#c9c9ca"));
+        discShadow.setStyle("-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.3), 15, 0.6, 0, 3);");
+        discShadow.setCache(true);
+        disc = new StackPane(albumCover, centerHoleGray, centerHoleWhite);
+        setLowPower(lowPower);
+
+        StackPane cdPane = new StackPane(discShadow, disc);
         cdPane.setAlignment(Pos.CENTER);
         cdPane.setPrefWidth(300);
 
         // === SONG LIST ===
         songListView = new ListView<>();
-        loadSongsFromResources();
+        librarySearch = new LibrarySearch(tracks, songListView);
         setupSongListContextMenu();
 
+        // === SEARCH ===
+        searchField = new TextField();
+        searchField.setPromptText("Search title, artist, album");
+        searchField.textProperty().addListener((obs, oldVal, newVal) -> librarySearch.search(newVal));
+        searchField.setOnKeyPressed(event -> {
+            if (event.getCode() == javafx.scene.input.KeyCode.ESCAPE) {
+                searchField.clear();
+                event.consume();
+            }
+        });
+
         // === LABELS ===
         songTitleLabel = new Label("Song Title");
         songTitleLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
@@ -96,13 +189,33 @@ public class MainUI extends Application {
 
         volumeSlider.setPrefWidth(150);
         volumeSlider.valueProperty().addListener((obs, oldVal, newVal) -> {
-            if (mediaPlayer != null) mediaPlayer.setVolume(newVal.doubleValue());
+            MediaPlayer player = playback.player();
+            if (player != null) player.setVolume(volumeFor(currentTrackId));
+            players.setVolume(newVal.doubleValue());
         });
 
         HBox controls = new HBox(10, prevButton, playButton, pauseButton, nextButton, vol, volumeSlider);
         controls.setAlignment(Pos.CENTER);
 
-        VBox rightPanel = new VBox(10, songListView, songTitleLabel, artistLabel, controls);
+        scanStatusLabel = new Label();
+        scanStatusLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: gray;");
+
+        // === IMPORT PROGRESS (hidden until songs are being added) ===
+        importBar = new ProgressBar(0);
+        importBar.setPrefWidth(150);
+        importLabel = new Label();
+        importLabel.setStyle("-fx-font-size: 11px;");
+        Button cancelImport = new Button("Cancel");
+        cancelImport.setOnAction(e -> {
+            if (songImport != null) songImport.cancel();
+            if (duplicateFinder != null) duplicateFinder.cancel();
+        });
+        importBox = new HBox(8, importBar, importLabel, cancelImport);
+        importBox.setAlignment(Pos.CENTER_LEFT);
+        importBox.setVisible(false);
+        importBox.setManaged(false);
+
+        VBox rightPanel = new VBox(10, searchField, songListView, songTitleLabel, artistLabel, controls, scanStatusLabel, importBox);
         rightPanel.setAlignment(Pos.CENTER);
 
         // === MENU BAR ===
@@ -122,8 +235,11 @@ public class MainUI extends Application {
         primaryStage.setTitle("MUZik");
         primaryStage.setScene(scene);
         primaryStage.show();
+        primaryStage.iconifiedProperty().addListener((obs, was, now) -> windowVisibilityChanged(primaryStage));
+        primaryStage.showingProperty().addListener((obs, was, now) -> windowVisibilityChanged(primaryStage));
 
         // === EVENTS ===
+        songListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         songListView.setOnMouseClicked(this::handleDoubleClick);
         playButton.setOnAction(e -> playSong());
         pauseButton.setOnAction(e -> pauseSong());
@@ -132,12 +248,10 @@ public class MainUI extends Application {
 
         // SPACEBAR PLAY/PAUSE
         scene.setOnKeyPressed(event -> {
+            if (searchField.isFocused()) return;
             switch (event.getCode()) {
                 case SPACE -> {
-                    if (mediaPlayer != null) {
-                        if (mediaPlayer.getStatus() == MediaPlayer.Status.PLAYING) pauseSong();
-                        else playSong();
-                    }
+                    if (playback.player() != null) playback.togglePlay();
                     event.consume();
                 }
                 default -> {
@@ -145,73 +259,300 @@ public class MainUI extends Application {
             }
         });
 
-        // select first song if available
-        if (!songURLs.isEmpty()) {
-            songListView.getSelectionModel().select(0);
-            loadSong(0);
-        }
-
+        players.setVolume(volumeSlider.getValue());
+        subscribePlayback();
+        skipDelay.setOnFinished(e -> finishSkip());
+        neighbourDelay.setOnFinished(e -> prepareNeighbours());
+        Timeline playerStats = new Timeline(new KeyFrame(Duration.minutes(1), e -> {
+            players.rollMinute();
+            logCpu("the last minute");
+        }));
+        playerStats.setCycleCount(Timeline.INDEFINITE);
+        playerStats.play();
+
+        // scan runs in the background; the first song is selected once it finishes
+        loadSongsFromResources(0);
     }
 
-    private void loadSongsFromResources() {
-        songURLs.clear();
-        songTitles.clear();
-        songArtists.clear();
-        songListView.getItems().clear();
+    @Override
+    public void stop() {
+        if (libraryWatcher != null) libraryWatcher.close();
+        if (songImport != null) songImport.cancel();
+        if (duplicateFinder != null) duplicateFinder.cancel();
+        librarySearch.shutdown();
+        scanner.shutdown();
+        artCache.shutdown();
+        waveforms.shutdown();
+        loudness.shutdown();
+        if (Boolean.getBoolean("muzik.reportOnExit")) {
+            try {
+                System.out.println("Performance report: " + diagnostics.writeReport(watchdog.report()));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        logPlay(playback.track(), playback.player());
+        playLog.close();
+        diagnostics.close();
+        watchdog.stop();
+        players.clear();
+        players.rollMinute();
+        System.out.println("Playback listeners at exit: " + playback.listenerCount());
+        System.out.println(artCache.stats());
+    }
 
-        List<String> supportedFormats = List.of(".mp3", ".m4a", ".aac", ".wav");
+    private void loadSongsFromResources(int selectIndex) {
+        scanGeneration++;
+        if (scanFeed != null) scanFeed.close();
+        scanFeed = new ScanFeed(tracks, librarySearch, p -> rootOf(p) != null, this::removeTrack);
+        loudness.cancel();
+        tracks.clear();
+        libraryRoots.clear();
+        libraryIndexes.clear();
+        startLibraryWatcher();
 
         try {
-            URL dirURL = getClass().getResource("/songs");
-            if (dirURL != null && dirURL.getProtocol().equals("file")) {
-                File folder = new File(dirURL.toURI());
-                loadSongsFromFolder(folder, supportedFormats);
+            File folder = resolveSongsFolder();
+            if (folder.exists() && folder.isDirectory()) {
+                scanLibraryRoot(folder.toPath(), selectIndex);
             } else {
-                File fallbackDir = new File(System.getProperty("user.dir"), "songs");
-                if (fallbackDir.exists() && fallbackDir.isDirectory()) {
-                    loadSongsFromFolder(fallbackDir, supportedFormats);
-                } else {
-                    System.out.println("No /songs directory found in resources or fallback ./songs folder.");
-                }
+                System.out.println("No /songs directory found in resources or fallback ./songs folder.");
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
+
+        for (Path root : LibraryRoots.load()) {
+            if (Files.isDirectory(root)) scanLibraryRoot(root, selectIndex);
+            else System.out.println("Library folder not available: " + root);
+        }
     }
 
-    private void loadSongsFromFolder(File folder, List<String> supportedFormats) {
-        File[] files = folder.listFiles((f, name) -> {
-            String lower = name.toLowerCase();
-            return supportedFormats.stream().anyMatch(lower::endsWith);
-        });
+    private File resolveSongsFolder() throws Exception {
+        URL dirURL = getClass().getResource("/songs");
+        if (dirURL != null && dirURL.getProtocol().equals("file")) {
+            return new File(dirURL.toURI());
+        }
+        // fallback to ./songs directory in working folder
+        return new File(System.getProperty("user.dir"), "songs");
+    }
 
-        if (files == null) return;
+    static boolean isSupported(String fileName) {
+        String lower = fileName.toLowerCase();
+        return SUPPORTED_FORMATS.stream().anyMatch(lower::endsWith);
+    }
 
-        for (File file : files) {
-            try {
-                final URL url = file.toURI().toURL();
-                final Media media = new Media(url.toString());
-                final String fallbackTitle = file.getName().replaceFirst("\\.[^.]+$", "");
-                final String fallbackArtist = "Unknown Artist";
-
-                MediaPlayer tempPlayer = new MediaPlayer(media);
-                tempPlayer.setOnReady(() -> {
-                    Map<String, Object> meta = media.getMetadata();
-                    String title = (String) meta.getOrDefault("title", fallbackTitle);
-                    String artist = (String) meta.getOrDefault("artist", fallbackArtist);
-
-                    songURLs.add(url);
-                    songTitles.add(title);
-                    songArtists.add(artist);
-                    songListView.getItems().add(title);
-
-                    tempPlayer.dispose();
+    /**
+     * Walks one library root recursively in the background. Its songs appear in the list by file name
+     * as soon as the folder is listed and get their tags as they are read, see {@link ScanFeed}.
+     */
+    private void scanLibraryRoot(Path root, int selectIndex) {
+        Path normalized = root.toAbsolutePath().normalize();
+        if (libraryRoots.contains(normalized)) return;
+        libraryRoots.add(normalized);
+        LibraryIndex index = LibraryIndex.forFolder(normalized);
+        libraryIndexes.put(normalized, index);
+
+        final ScanFeed feed = scanFeed;
+        final LibraryWatcher watcher = libraryWatcher;
+        feed.started();
+        scanner.scanRoot(normalized, index, p -> isSupported(p.getFileName().toString()),
+                dirs -> {
+                    if (watcher != null) watcher.watch(dirs);
+                },
+                this::showScanProgress,
+                feed
+        ).whenComplete((scanned, error) -> feed.finished(() -> {
+            if (error != null) {
+                System.err.println("Scan of " + normalized + " failed: " + error.getMessage());
+                return;
+            }
+            if (!libraryRoots.contains(normalized)) return;
+
+            if (!tracks.isEmpty() && playback.player() == null) {
+                int i = Math.max(0, Math.min(selectIndex, tracks.size() - 1));
+                loadSong(i);
+                librarySearch.select(currentTrackId);
+            }
+            loudness.analyze(scanned.stream().map(TrackInfo::path).toList(), index);
+        }));
+    }
+
+    private void showScanProgress(Path root, int scanned, int total) {
+        scanProgress.put(root, new int[]{scanned, total});
+        if (scanProgressQueued.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                scanProgressQueued.set(false);
+                StringBuilder text = new StringBuilder();
+                scanProgress.forEach((r, p) -> {
+                    if (p[1] >= 0 && p[0] >= p[1]) return;
+                    if (text.length() > 0) text.append("   ");
+                    text.append(r.getFileName() != null ? r.getFileName() : r).append(": ");
+                    text.append(p[1] < 0 ? "listing…" : p[0] + " / " + p[1]);
                 });
-            } catch (Exception e) {
-                System.err.println("Failed to load: " + file.getName());
-                e.printStackTrace();
+                scanProgress.values().removeIf(p -> p[1] >= 0 && p[0] >= p[1]);
+                scanStatusLabel.setText(text.toString());
+            });
+        }
+    }
+
+    private void startLibraryWatcher() {
+        if (libraryWatcher != null) libraryWatcher.close();
+        try {
+            libraryWatcher = new LibraryWatcher(p -> isSupported(p.getFileName().toString()),
+                    new LibraryWatcher.Listener() {
+                        @Override
+                        public void onChanges(Set<Path> changed, Set<Path> deleted) {
+                            applyLibraryChanges(changed, deleted);
+                        }
+
+                        @Override
+                        public void onOverflow() {
+                            Platform.runLater(() -> loadSongsFromResources(currentRow()));
+                        }
+                    });
+        } catch (Exception e) {
+            libraryWatcher = null;
+            System.err.println("Library watching disabled: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Slider volume scaled by the replay gain measured for track {@code id}. A gain above unity is
+     * capped at full volume, as the player cannot amplify.
+     */
+    private double volumeFor(int id) {
+        double volume = volumeSlider.getValue();
+        if (!normalizeVolume || !tracks.contains(id)) return volume;
+        Path path = tracks.path(id);
+        Path root = rootOf(path);
+        LibraryIndex index = root != null ? libraryIndexes.get(root) : null;
+        if (index == null) return volume;
+        return Math.min(1, volume * LoudnessAnalyzer.factor(index.gain(path)));
+    }
+
+    private Path rootOf(Path path) {
+        for (Path root : libraryRoots) {
+            if (path.startsWith(root)) return root;
+        }
+        return null;
+    }
+
+    /**
+     * Applies single-file changes to the library without a full rescan. Safe to call from any thread;
+     * tags are read in the background and the list is patched on the FX thread. A deleted path may
+     * be a folder, which removes every track below it.
+     */
+    private void applyLibraryChanges(Collection<Path> changed, Collection<Path> deleted) {
+        Platform.runLater(() -> {
+            final int generation = scanGeneration;
+            Set<LibraryIndex> touched = new HashSet<>();
+            for (Path path : deleted) {
+                Path root = rootOf(path);
+                if (root == null) continue;
+                LibraryIndex index = libraryIndexes.get(root);
+                if (isSupported(path.getFileName().toString())) {
+                    index.remove(path);
+                    removeTrack(path);
+                } else {
+                    index.retainOnly(tracksUnder(root, path));
+                    removeTracksUnder(path);
+                }
+                touched.add(index);
             }
+            if (!touched.isEmpty()) CompletableFuture.runAsync(() -> touched.forEach(LibraryIndex::save));
+
+            Map<Path, List<Path>> byRoot = new HashMap<>();
+            for (Path path : changed) {
+                Path root = rootOf(path);
+                if (root != null) byRoot.computeIfAbsent(root, r -> new ArrayList<>()).add(path);
+            }
+            for (Map.Entry<Path, List<Path>> e : byRoot.entrySet()) {
+                LibraryIndex index = libraryIndexes.get(e.getKey());
+                scanner.rescan(e.getValue(), index).thenAccept(scanned -> Platform.runLater(() -> {
+                    if (generation != scanGeneration) return;
+                    tracks.batch(() -> scanned.forEach(this::putTrack));
+                    loudness.analyze(scanned.stream().map(TrackInfo::path).toList(), index);
+                }));
+            }
+        });
+    }
+
+    /** Updates an existing entry in place, or inserts a new one at its sorted position. */
+    private void putTrack(TrackInfo track) {
+        int id = tracks.put(track);
+        if (playback.player() == null) {
+            loadSong(tracks.rowOf(id));
+            librarySearch.select(id);
+        }
+    }
+
+    /** Removes the entry for {@code path}; a removed current track keeps playing until the next skip. */
+    private void removeTrack(Path path) {
+        int id = tracks.find(path);
+        if (id < 0) return;
+        if (id == currentTrackId) currentRowHint = tracks.rowOf(id);
+        tracks.remove(id);
+    }
+
+    /** Listed tracks of {@code root} that are not below {@code excluded}. */
+    private List<Path> tracksUnder(Path root, Path excluded) {
+        List<Path> keep = new ArrayList<>();
+        for (int id : tracks.idsUnder(root)) {
+            Path p = tracks.path(id);
+            if (!p.startsWith(excluded)) keep.add(p);
+        }
+        return keep;
+    }
+
+    /** Removes every track below {@code dir} (a deleted folder or a removed library root). */
+    private void removeTracksUnder(Path dir) {
+        int[] ids = tracks.idsUnder(dir);
+        if (ids.length == 0) return;
+        int current = tracks.rowOf(currentTrackId);
+        if (current >= 0 && tracks.path(currentTrackId).startsWith(dir)) currentRowHint = current;
+        tracks.removeAll(ids);
+    }
+
+    /** Row of the current track; if it was removed, the row it used to occupy. */
+    private int currentRow() {
+        int row = tracks.rowOf(currentTrackId);
+        return row >= 0 ? row : currentRowHint;
+    }
+
+    private void addLibraryFolder() {
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Add Library Folder");
+        File dir = chooser.showDialog(scene.getWindow());
+        if (dir == null) return;
+
+        Path root = dir.toPath().toAbsolutePath().normalize();
+        if (rootOf(root) != null) {
+            showAlert("Already in Library", "\"" + dir.getName() + "\" is already part of your library.");
+            return;
         }
+        LibraryRoots.add(root);
+        scanLibraryRoot(root, currentRow());
+    }
+
+    private void removeLibraryFolder() {
+        List<Path> roots = LibraryRoots.load();
+        if (roots.isEmpty()) {
+            showAlert("No Library Folders", "Only the songs folder is in your library.");
+            return;
+        }
+
+        ChoiceDialog<Path> dialog = new ChoiceDialog<>(roots.get(0), roots);
+        dialog.setTitle("Remove Library Folder");
+        dialog.setHeaderText("Stop showing songs from this folder? Files are not deleted.");
+        dialog.initOwner(scene.getWindow());
+        dialog.showAndWait().ifPresent(root -> {
+            LibraryRoots.remove(root);
+            Path normalized = root.toAbsolutePath().normalize();
+            libraryRoots.remove(normalized);
+            libraryIndexes.remove(normalized);
+            removeTracksUnder(normalized);
+        });
     }
 
     private MenuBar createMenuBar() {
@@ -224,6 +565,12 @@ public class MainUI extends Application {
 
         //MiniPlayer (Ipod)
         MenuItem imuzikMode = new MenuItem("iMuzik Mode");
+        CheckMenuItem lowPowerMode = new CheckMenuItem("Low Power Mode");
+        lowPowerMode.setSelected(lowPower);
+        lowPowerMode.setOnAction(e -> setLowPower(lowPowerMode.isSelected()));
+        CheckMenuItem normalize = new CheckMenuItem("Normalize Volume");
+        normalize.setSelected(normalizeVolume);
+        normalize.setOnAction(e -> normalizeVolume = normalize.isSelected());
 
         lightMode.setOnAction(e -> applyLightTheme());
         darkMode.setOnAction(e -> applyDarkTheme());
@@ -234,12 +581,76 @@ public class MainUI extends Application {
         //Edit
         Menu editMenu = new Menu("Edit");
         MenuItem addSongs = new MenuItem("Add Songs");
+        MenuItem addFolder = new MenuItem("Add Library Folder…");
+        MenuItem removeFolder = new MenuItem("Remove Library Folder…");
+        MenuItem findDuplicates = new MenuItem("Find Duplicates…");
 
         addSongs.setOnAction(e -> addsongs());
+        addFolder.setOnAction(e -> addLibraryFolder());
+        removeFolder.setOnAction(e -> removeLibraryFolder());
+        findDuplicates.setOnAction(e -> findDuplicates());
+        MenuItem saveReport = new MenuItem("Save Performance Report…");
+        saveReport.setOnAction(e -> savePerformanceReport());
+        MenuItem stallReport = new MenuItem("Show Stall Report…");
+        stallReport.setOnAction(e -> showStallReport());
+
+        //Playback
+        Menu playbackMenu = new Menu("Playback");
+        CheckMenuItem shuffle = new CheckMenuItem("Shuffle");
+        shuffle.setSelected(queue.isShuffle());
+        shuffle.setOnAction(e -> {
+            queue.setShuffle(shuffle.isSelected());
+            neighbourDelay.playFromStart();
+        });
+        ToggleGroup repeatGroup = new ToggleGroup();
+        playbackMenu.getItems().addAll(shuffle, new SeparatorMenuItem());
+        for (PlayQueue.Repeat mode : PlayQueue.Repeat.values()) {
+            RadioMenuItem item = new RadioMenuItem(switch (mode) {
+                case OFF -> "Repeat Off";
+                case ALL -> "Repeat All";
+                case ONE -> "Repeat One";
+            });
+            item.setToggleGroup(repeatGroup);
+            item.setSelected(queue.repeat() == mode);
+            item.setOnAction(e -> {
+                queue.setRepeat(mode);
+                neighbourDelay.playFromStart();
+            });
+            playbackMenu.getItems().add(item);
+        }
+        MenuItem clearUpNext = new MenuItem("Clear Up Next");
+        clearUpNext.setOnAction(e -> {
+            queue.clearUpNext();
+            neighbourDelay.playFromStart();
+        });
+        MenuItem playStatistics = new MenuItem("Play Statistics…");
+        playStatistics.setOnAction(e -> showPlayStatistics());
+        playbackMenu.getItems().addAll(new SeparatorMenuItem(), clearUpNext, new SeparatorMenuItem(), playStatistics);
+
+        //Playlists
+        Menu playlistMenu = new Menu("Playlists");
+        MenuItem newPlaylist = new MenuItem("New Playlist…");
+        newPlaylist.setOnAction(e -> newPlaylist(new int[0]));
+        MenuItem openPlaylist = new MenuItem("Open or Import Playlist…");
+        openPlaylist.setOnAction(e -> choosePlaylist());
+        playlistMenu.getItems().addAll(newPlaylist, openPlaylist);
+        // saved playlists are listed fresh each time the menu opens
+        playlistMenu.setOnShowing(e -> {
+            playlistMenu.getItems().retainAll(newPlaylist, openPlaylist);
+            List<Path> saved = Playlist.saved();
+            if (!saved.isEmpty()) playlistMenu.getItems().add(new SeparatorMenuItem());
+            for (Path file : saved) {
+                String name = file.getFileName().toString();
+                MenuItem item = new MenuItem(name.substring(0, name.length() - Playlist.EXTENSION.length()));
+                item.setOnAction(a -> openPlaylist(file));
+                playlistMenu.getItems().add(item);
+            }
+        });
 
-        themeMenu.getItems().addAll(lightMode, darkMode, pinknwhite, new SeparatorMenuItem(), imuzikMode);
-        editMenu.getItems().addAll(addSongs);
-        return new MenuBar(themeMenu, editMenu);
+        themeMenu.getItems().addAll(lightMode, darkMode, pinknwhite, new SeparatorMenuItem(), imuzikMode, lowPowerMode, normalize);
+        editMenu.getItems().addAll(addSongs, new SeparatorMenuItem(), addFolder, removeFolder, new SeparatorMenuItem(), findDuplicates,
+                new SeparatorMenuItem(), stallReport, saveReport);
+        return new MenuBar(themeMenu, editMenu, playbackMenu, playlistMenu);
     }
 
     public void addsongs() {
@@ -254,48 +665,156 @@ public class MainUI extends Application {
             return;
         }
 
+        if (backgroundTaskRunning()) return;
+
         try {
             // Try locating the songs directory
-            File songsDir;
-
-            URL dirURL = getClass().getResource("/songs");
-            if (dirURL != null && dirURL.getProtocol().equals("file")) {
-                songsDir = new File(dirURL.toURI());
-            } else {
-                // fallback to ./songs directory in working folder
-                songsDir = new File(System.getProperty("user.dir"), "songs");
-            }
+            File songsDir = resolveSongsFolder();
 
             if (!songsDir.exists()) {
                 songsDir.mkdirs();
+                loadSongsFromResources(0);
             }
 
-            // Copy files into songs folder
-            for (File src : selectedFiles) {
-                File dest = new File(songsDir, src.getName());
+            // Copy in the background; each song is added as soon as its copy is in place. The library
+            // watcher sees the same files but finds them already listed.
+            List<Path> sources = selectedFiles.stream().map(File::toPath).toList();
+            SongImport task = new SongImport(sources, songsDir.toPath(),
+                    dest -> applyLibraryChanges(List.of(dest), List.of()));
+            songImport = task;
+
+            importBar.progressProperty().bind(task.progressProperty());
+            importLabel.textProperty().bind(task.messageProperty());
+            importBox.setVisible(true);
+            importBox.setManaged(true);
+
+            task.setOnSucceeded(e -> {
+                hideImportProgress();
+                SongImport.Result result = task.getValue();
+                StringBuilder msg = new StringBuilder(result.copied().size() + " song(s) added.");
+                if (!result.duplicates().isEmpty()) msg.append("\n").append(result.duplicates().size()).append(" already in your library.");
+                if (!result.failed().isEmpty()) msg.append("\n").append(result.failed().size()).append(" could not be copied.");
+                showAlert("Success", msg.toString());
+            });
+            task.setOnCancelled(e -> {
+                hideImportProgress();
+                showAlert("Import Cancelled", "Songs copied before cancelling stay in your library.");
+            });
+            task.setOnFailed(e -> {
+                hideImportProgress();
+                task.getException().printStackTrace();
+                showAlert("Error", "Failed to add songs: " + task.getException().getMessage());
+            });
+
+            Thread worker = new Thread(task, "song-import");
+            worker.setDaemon(true);
+            worker.start();
+        } catch (Exception e) {
+            e.printStackTrace();
+            showAlert("Error", "Failed to add songs: " + e.getMessage());
+        }
+    }
 
-                // avoid overwriting unless desired
-                if (dest.exists()) {
-                    System.out.println("File already exists, skipping: " + dest.getName());
-                    continue;
-                }
+    /** Shows an alert and returns true while an import or duplicate scan owns the progress bar. */
+    private boolean backgroundTaskRunning() {
+        if (songImport != null && songImport.isRunning()) {
+            showAlert("Import Running", "Please wait for the current import to finish or cancel it.");
+            return true;
+        }
+        if (duplicateFinder != null && duplicateFinder.isRunning()) {
+            showAlert("Duplicate Scan Running", "Please wait for the duplicate scan to finish or cancel it.");
+            return true;
+        }
+        return false;
+    }
+
+    private void findDuplicates() {
+        if (backgroundTaskRunning()) return;
+        if (tracks.isEmpty()) {
+            showAlert("No Songs", "Your library is empty.");
+            return;
+        }
 
-                java.nio.file.Files.copy(
-                        src.toPath(),
-                        dest.toPath(),
-                        java.nio.file.StandardCopyOption.REPLACE_EXISTING
-                );
-                System.out.println("Copied: " + src.getName());
+        List<Path> files = new ArrayList<>(tracks.size());
+        for (int row = 0; row < tracks.size(); row++) files.add(tracks.path(tracks.idAt(row)));
+        DuplicateFinder task = new DuplicateFinder(files, scanner.devices());
+        duplicateFinder = task;
+
+        importBar.progressProperty().bind(task.progressProperty());
+        importLabel.textProperty().bind(task.messageProperty());
+        importBox.setVisible(true);
+        importBox.setManaged(true);
+
+        task.setOnSucceeded(e -> {
+            hideImportProgress();
+            List<List<Path>> groups = task.getValue();
+            if (groups.isEmpty()) {
+                showAlert("No Duplicates", "No two songs in your library have the same audio.");
+            } else {
+                showDuplicates(groups);
             }
+        });
+        task.setOnCancelled(e -> hideImportProgress());
+        task.setOnFailed(e -> {
+            hideImportProgress();
+            task.getException().printStackTrace();
+            showAlert("Error", "Duplicate scan failed: " + task.getException().getMessage());
+        });
 
-            // Refresh the list to include new songs
-            loadSongsFromResources();
+        Thread worker = new Thread(task, "duplicate-finder");
+        worker.setDaemon(true);
+        worker.start();
+    }
 
-            showAlert("Success", "Songs added successfully!");
-        } catch (Exception e) {
-            e.printStackTrace();
-            showAlert("Error", "Failed to add songs: " + e.getMessage());
+    /** Lists each group of identical files; every copy but the first is ticked for deletion. */
+    private void showDuplicates(List<List<Path>> groups) {
+        VBox content = new VBox(6);
+        content.setPadding(new Insets(10));
+        Map<CheckBox, Path> choices = new HashMap<>();
+        for (List<Path> group : groups) {
+            content.getChildren().add(new Label(group.size() + " copies of \"" + group.get(0).getFileName() + "\""));
+            for (int i = 0; i < group.size(); i++) {
+                CheckBox box = new CheckBox(group.get(i).toString());
+                box.setSelected(i > 0);
+                box.setPadding(new Insets(0, 0, 0, 16));
+                choices.put(box, group.get(i));
+                content.getChildren().add(box);
+            }
         }
+        ScrollPane scroll = new ScrollPane(content);
+        scroll.setFitToWidth(true);
+        scroll.setPrefSize(560, 360);
+
+        ButtonType delete = new ButtonType("Delete Selected", ButtonBar.ButtonData.OK_DONE);
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Duplicate Songs");
+        dialog.setHeaderText(groups.size() + " song(s) are in your library more than once.");
+        dialog.getDialogPane().setContent(scroll);
+        dialog.getDialogPane().getButtonTypes().addAll(delete, ButtonType.CANCEL);
+        dialog.initOwner(scene.getWindow());
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != delete) return;
+
+        List<Path> chosen = new ArrayList<>();
+        choices.forEach((box, path) -> {
+            if (box.isSelected()) chosen.add(path);
+        });
+        if (chosen.isEmpty()) return;
+        chosen.sort(LibraryScanner.PATH_ORDER);
+
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("Delete Duplicates");
+        confirm.setHeaderText("Permanently delete " + chosen.size() + " file(s)?");
+        confirm.initOwner(scene.getWindow());
+        if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        deleteSongs(chosen.stream().mapToInt(tracks::find).filter(id -> id >= 0).toArray());
+    }
+
+    private void hideImportProgress() {
+        importBar.progressProperty().unbind();
+        importLabel.textProperty().unbind();
+        importBox.setVisible(false);
+        importBox.setManaged(false);
     }
 
     private void showAlert(String title, String message) {
@@ -309,29 +828,16 @@ public class MainUI extends Application {
 
     private void openMiniPlayer() {
         if (miniPlayer == null) {
-            miniPlayer = new MiniPlayerUI(getMediaPlayer());
-        }
-
-        if (miniPlayer != null) {
-            miniPlayer.setSharedPlayer(getMediaPlayer());
+            miniPlayer = new MiniPlayerUI(playback, waveforms);
         }
-
         miniPlayer.show();
-        miniPlayer.update(
-                songTitleLabel.getText(),
-                artistLabel.getText().replaceFirst("^Artist:\\s*", ""),
-                "Unknown Album",
-                currentSongIndex,
-                Math.max(1, songURLs.size()),
-                null
-        );
     }
 
     private void handleDoubleClick(javafx.scene.input.MouseEvent event) {
         if (event.getClickCount() == 2) {
-            int index = songListView.getSelectionModel().getSelectedIndex();
-            if (index >= 0 && index < songURLs.size()) {
-                loadSong(index);
+            int id = librarySearch.selectedId();
+            if (id >= 0) {
+                loadSong(tracks.rowOf(id));
                 playSong();
             }
         }
@@ -339,109 +845,511 @@ public class MainUI extends Application {
 
     private void loadSong(int index) {
         stopRotation();
-        if (mediaPlayer != null) {
-            mediaPlayer.stop();
-            mediaPlayer.dispose();
+        pendingSkipId = -1;
+        skipDelay.stop();
+        int id = index >= 0 && index < tracks.size() ? tracks.idAt(index) : -1;
+        MediaPlayer prepared = id >= 0 ? players.take(id) : null;
+        PlaybackBus.Track left = playback.track();
+        MediaPlayer old = playback.release();
+        if (old != null) {
+            logPlay(left, old);
+            // keep the track just left around, so "previous" does not start from scratch
+            if (tracks.contains(currentTrackId) && currentTrackId != id) players.recycle(currentTrackId, old);
+            else players.dispose(old);
         }
 
-        if (songURLs.isEmpty() || index < 0 || index >= songURLs.size()) return;
+        if (id < 0) {
+            playback.load(null, null);
+            return;
+        }
 
-        URL songURL = songURLs.get(index);
-        Media media = new Media(songURL.toString());
-        mediaPlayer = new MediaPlayer(media);
-        mediaPlayer.setVolume(volumeSlider.getValue());
+        MediaPlayer player = prepared != null ? prepared : players.create(tracks.path(id));
+        player.setVolume(volumeFor(id));
+        measureLoad(player, tracks.path(id), prepared != null);
 
-        songTitleLabel.setText(songTitles.get(index));
-        artistLabel.setText("Artist: " + songArtists.get(index));
+        songTitleLabel.setText(tracks.title(id));
+        artistLabel.setText("Artist: " + tracks.artist(id));
         albumCover.setFill(Color.web("#c9c9ca"));
+        Path path = tracks.path(id);
+        artCache.get(path, CD_ART_PX).thenAccept(art -> showArt(id, path, art));
 
-        media.getMetadata().addListener((MapChangeListener<? super String, ? super Object>) change -> {
-            if (change.wasAdded()) {
-                Map<String, Object> meta = media.getMetadata();
-                if (meta.containsKey("title"))
-                    songTitleLabel.setText((String) meta.get("title"));
-                if (meta.containsKey("artist"))
-                    artistLabel.setText("Artist: " + meta.get("artist"));
-                if (meta.containsKey("image"))
-                    albumCover.setFill(new ImagePattern((Image) meta.get("image")));
-
-                if (miniPlayer != null) {
-                    miniPlayer.update(
-                            songTitleLabel.getText(),
-                            artistLabel.getText().replaceFirst("^Artist:\\s*", ""),
-                            "Unknown Album",
-                            currentSongIndex,
-                            Math.max(1, songURLs.size()),
-                            meta.containsKey("image") ? (Image) meta.get("image") : null
-                    );
-                }
+        player.setOnPlaying(() -> {
+            recordFirstAudio();
+            logGaplessGap(prepared != null);
+            startRotation();
+        });
+        player.setOnPaused(this::pauseRotation);
+        player.setOnEndOfMedia(() -> {
+            endOfMediaNanos = System.nanoTime();
+            advance();
+        });
+        currentTrackId = id;
+        currentRowHint = index;
+        queue.played(id);
+        playback.load(new PlaybackBus.Track(id, path, tracks.title(id), tracks.artist(id), tracks.album(id), index, tracks.size()), player);
+        neighbourDelay.playFromStart();
+    }
+
+    /** Main window's view of the playback: tags found by the player, and pre-roll near the end. */
+    private void subscribePlayback() {
+        playback.setControls(new PlaybackBus.Controls() {
+            @Override
+            public void play() {
+                playSong();
+            }
+
+            @Override
+            public void pause() {
+                pauseSong();
+            }
+
+            @Override
+            public void next() {
+                playNextSong();
+            }
+
+            @Override
+            public void previous() {
+                playPreviousSong();
             }
         });
+        playback.subscribe(new PlaybackBus.Listener() {
+            @Override
+            public void metadata(String key, Object value) {
+                if (key.equals("title")) songTitleLabel.setText((String) value);
+                else if (key.equals("artist")) artistLabel.setText("Artist: " + value);
+                else if (key.equals("image") && value instanceof Image full && tracks.contains(currentTrackId)) {
+                    // only used when the tag reader found no embedded cover; the cache keeps a thumbnail of it
+                    int id = currentTrackId;
+                    Path path = tracks.path(id);
+                    artCache.get(path, CD_ART_PX).thenAccept(art -> {
+                        if (art == null) artCache.offer(path, full, CD_ART_PX).thenAccept(thumb -> showArt(id, path, thumb));
+                    });
+                }
+            }
 
-        mediaPlayer.setOnPlaying(this::startRotation);
-        mediaPlayer.setOnPaused(this::pauseRotation);
-        mediaPlayer.setOnEndOfMedia(this::playNextSong);
-        currentSongIndex = index;
+            @Override
+            public void position(Duration current, Duration total) {
+                if (total != null && !total.isUnknown() && total.toSeconds() - current.toSeconds() <= PREROLL_SECONDS) {
+                    prepareNextTrack();
+                }
+            }
+        });
+    }
 
-        if (miniPlayer != null) {
-            miniPlayer.setSharedPlayer(mediaPlayer);
-        }
+    /** Shows a cover thumbnail (from any thread) if {@code id} is still the loaded track. */
+    private void showArt(int id, Path path, Image art) {
+        if (art == null) return;
+        // the mini player's size is scaled from the thumbnail just loaded, not from the file
+        artCache.get(path, MINI_ART_PX).thenAccept(mini -> Platform.runLater(() -> {
+            if (id != currentTrackId) return;
+            albumCover.setFill(new ImagePattern(art));
+            playback.publishCover(mini);
+        }));
     }
 
     public void playSong() {
-        if (mediaPlayer != null) {
-            mediaPlayer.play();
+        MediaPlayer player = playback.player();
+        if (player != null) {
+            if (firstAudio == null && player.getStatus() != MediaPlayer.Status.PLAYING) {
+                firstAudio = new PlayerEvents.FirstAudio();
+                firstAudio.begin();
+                firstAudioStart = System.nanoTime();
+            }
+            player.play();
             artistLabel.setText("Now Playing...");
             startRotation();
-            if (miniPlayer != null) miniPlayer.syncPlayPause(true);
         }
     }
 
     public void pauseSong() {
-        if (mediaPlayer != null) {
-            mediaPlayer.pause();
+        MediaPlayer player = playback.player();
+        firstAudio = null;
+        if (player != null) {
+            player.pause();
             artistLabel.setText("Paused");
             pauseRotation();
-            if (miniPlayer != null) miniPlayer.syncPlayPause(false);
         }
     }
 
+    /** Next button / wheel: coalesced with other skips, see {@link #skipTo(int)}. */
     public void playNextSong() {
-        if (songURLs.isEmpty()) return;
-        currentSongIndex = (currentSongIndex + 1) % songURLs.size();
-        songListView.getSelectionModel().select(currentSongIndex);
-        loadSong(currentSongIndex);
+        int id = queue.next(false);
+        if (id >= 0) skipTo(id);
+    }
+
+    /** End of media: the next track starts right away; with repeat off, playback stops after the last one. */
+    private void advance() {
+        int id = queue.next(true);
+        if (id < 0) {
+            MediaPlayer player = playback.player();
+            // stop() rewinds the player, so the finished track has to be logged while it still shows as heard
+            logPlay(playback.track(), player);
+            if (player != null) player.stop();
+            // nothing follows, so there is no track change gap to measure
+            endOfMediaNanos = 0;
+            pauseRotation();
+            return;
+        }
+        loadSong(tracks.rowOf(id));
+        librarySearch.select(currentTrackId);
         playSong();
     }
 
-    public void playPreviousSong() {
-        if (songURLs.isEmpty()) return;
-        currentSongIndex = (currentSongIndex - 1 + songURLs.size()) % songURLs.size();
-        songListView.getSelectionModel().select(currentSongIndex);
-        loadSong(currentSongIndex);
+    /**
+     * Moves the skip target to track {@code id}. A track with an idle pooled player is switched to right
+     * away; otherwise only the selection and title follow each press, and the final target is loaded
+     * once presses have been quiet for a moment.
+     */
+    private void skipTo(int id) {
+        if (pendingSkipId < 0 && players.contains(id)) {
+            loadSong(tracks.rowOf(id));
+            librarySearch.select(currentTrackId);
+            playSong();
+            return;
+        }
+        pendingSkipId = id;
+        librarySearch.select(id);
+        songTitleLabel.setText(tracks.title(id));
+        artistLabel.setText("Artist: " + tracks.artist(id));
+        skipDelay.playFromStart();
+    }
+
+    private void finishSkip() {
+        int id = pendingSkipId;
+        pendingSkipId = -1;
+        if (!tracks.contains(id)) return;
+        loadSong(tracks.rowOf(id));
+        librarySearch.select(currentTrackId);
         playSong();
     }
 
-    private void startRotation() {
-        stopRotation(); // ensure only one rotation is active
+    // === player pool / gapless pre-roll ===
+
+    /** Makes sure the next track's player exists, so its media is READY when the current one ends. */
+    private void prepareNextTrack() {
+        int id = queue.peekNext(true);
+        if (id < 0 || id == currentTrackId) return; // repeating it needs a fresh player anyway
+        players.prepare(id, tracks.path(id));
+    }
+
+    /** Once skipping settled: keep idle players only for the previous and next track, creating missing ones. */
+    private void prepareNeighbours() {
+        if (tracks.isEmpty() || !tracks.contains(currentTrackId)) return;
+        int prev = queue.peekPrevious();
+        int next = queue.peekNext(false);
+        players.retainOnly(prev, next);
+        if (next >= 0 && next != currentTrackId) players.prepare(next, tracks.path(next));
+        if (prev >= 0 && prev != currentTrackId) players.prepare(prev, tracks.path(prev));
+    }
+
+    /** Records how long {@code player} takes to become READY; a pre-rolled player usually already is. */
+    private void measureLoad(MediaPlayer player, Path path, boolean preRolled) {
+        long start = System.nanoTime();
+        PlayerEvents.TrackLoad event = new PlayerEvents.TrackLoad();
+        event.begin();
+        event.path = path.toString();
+        event.preRolled = preRolled;
+        Runnable ready = () -> {
+            event.commit();
+            Metrics.timer(preRolled ? "track.load.prerolled" : "track.load.cold").recordSince(start);
+        };
+        if (player.getStatus() != MediaPlayer.Status.UNKNOWN) {
+            ready.run();
+            return;
+        }
+        player.statusProperty().addListener(new ChangeListener<>() {
+            @Override
+            public void changed(ObservableValue<? extends MediaPlayer.Status> obs, MediaPlayer.Status old, MediaPlayer.Status now) {
+                if (now == MediaPlayer.Status.UNKNOWN) return;
+                player.statusProperty().removeListener(this);
+                // a player that failed or was dropped before it got ready has no load time
+                if (now != MediaPlayer.Status.HALTED && now != MediaPlayer.Status.DISPOSED) ready.run();
+            }
+        });
+    }
+
+    /** Ends the wait started by {@link #playSong()}, now that audio is playing. */
+    private void recordFirstAudio() {
+        if (firstAudio == null) return;
+        if (tracks.contains(currentTrackId)) firstAudio.path = tracks.path(currentTrackId).toString();
+        firstAudio.commit();
+        Metrics.timer("playback.first-audio").recordSince(firstAudioStart);
+        firstAudio = null;
+    }
+
+    /** Writes a flight recording and a summary to {@code ~/.muzik/reports} off the FX thread. */
+    private void savePerformanceReport() {
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return diagnostics.writeReport(watchdog.report());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((summary, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                error.printStackTrace();
+                showAlert("Performance Report", "Could not write the report: " + error.getCause().getMessage());
+            } else {
+                showAlert("Performance Report", "Saved to " + summary.getParent() + "\n\n" + summary.getFileName()
+                        + " and the matching .jfr recording, which opens in JDK Mission Control.");
+            }
+        }));
+    }
+
+    /** Shows the FX thread watchdog's report, with an option to save it as a text file. */
+    private void showStallReport() {
+        String report = watchdog.report();
+        TextArea text = new TextArea(report);
+        text.setEditable(false);
+        text.setStyle("-fx-font-family: monospace;");
+        text.setPrefSize(720, 420);
+
+        ButtonType export = new ButtonType("Export…", ButtonBar.ButtonData.LEFT);
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Stall Report");
+        dialog.getDialogPane().setContent(text);
+        dialog.getDialogPane().getButtonTypes().addAll(export, ButtonType.CLOSE);
+        dialog.initOwner(scene.getWindow());
+        if (dialog.showAndWait().orElse(ButtonType.CLOSE) != export) return;
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Stall Report");
+        chooser.setInitialFileName("muzik-stalls.txt");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text Files", "*.txt"));
+        File file = chooser.showSaveDialog(scene.getWindow());
+        if (file == null) return;
+        CompletableFuture.runAsync(() -> {
+            try {
+                Files.writeString(file.toPath(), report);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).exceptionally(error -> {
+            error.printStackTrace();
+            Platform.runLater(() -> showAlert("Export Failed", "Could not write " + file.getName() + ": " + error.getCause().getMessage()));
+            return null;
+        });
+    }
+
+    // === play history ===
+
+    /**
+     * Logs the track being left: played if it reached its end or was heard for half its length (30
+     * seconds at most), skipped if it was heard for less, nothing if it never really started.
+     */
+    private void logPlay(PlaybackBus.Track left, MediaPlayer player) {
+        if (left == null || player == null) return;
+        double heard = player.getCurrentTime().toSeconds();
+        if (heard < 1) return;
+        Duration total = player.getTotalDuration();
+        double needed = total == null || total.isUnknown() || total.isIndefinite() ? 30 : Math.min(30, total.toSeconds() / 2);
+        boolean ended = endOfMediaNanos != 0;
+        playLog.record(left.path(), ended || heard >= needed, (int) heard);
+    }
+
+    /** Most played, recently played and never played songs; double-click plays one. */
+    private void showPlayStatistics() {
+        int[] ids = new int[tracks.size()];
+        Path[] paths = new Path[ids.length];
+        for (int row = 0; row < ids.length; row++) {
+            ids[row] = tracks.idAt(row);
+            paths[row] = tracks.path(ids[row]);
+        }
+        // keys are hashed off the FX thread; the store itself is only read here
+        CompletableFuture<long[]> keys = CompletableFuture.supplyAsync(() -> {
+            long[] k = new long[paths.length];
+            for (int i = 0; i < k.length; i++) k[i] = PlayLog.key(paths[i]);
+            return k;
+        });
+        CompletableFuture<List<PlayLog.Stat>> most = playLog.mostPlayed(STATS_ROWS);
+        CompletableFuture<List<PlayLog.Stat>> recent = playLog.recentlyPlayed(STATS_ROWS);
+        CompletableFuture<long[]> never = keys.thenCompose(k -> playLog.neverPlayed(k, STATS_ROWS));
+        CompletableFuture.allOf(most, recent, never).thenAccept(done -> Platform.runLater(() -> {
+            Map<Long, Integer> byKey = new HashMap<>(ids.length * 2);
+            long[] k = keys.join();
+            for (int i = 0; i < ids.length; i++) byKey.put(k[i], ids[i]);
+
+            DateTimeFormatter when = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+            TabPane tabs = new TabPane(
+                    statsTab("Most Played", most.join(), byKey, s -> s.plays() + (s.plays() == 1 ? " play" : " plays")),
+                    statsTab("Recently Played", recent.join(), byKey,
+                            s -> when.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(s.lastPlayed()), ZoneId.systemDefault()))),
+                    statsTab("Never Played", Arrays.stream(never.join()).mapToObj(key -> new PlayLog.Stat(key, 0, 0, 0)).toList(),
+                            byKey, s -> ""));
+            tabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+            tabs.setPrefSize(520, 420);
+
+            Dialog<ButtonType> dialog = new Dialog<>();
+            dialog.setTitle("Play Statistics");
+            dialog.getDialogPane().setContent(tabs);
+            dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+            dialog.initOwner(scene.getWindow());
+            dialog.show();
+        })).exceptionally(error -> {
+            error.printStackTrace();
+            return null;
+        });
+    }
+
+    /** One list of songs still in the library, each with {@code detail}. */
+    private Tab statsTab(String title, List<PlayLog.Stat> stats, Map<Long, Integer> byKey, Function<PlayLog.Stat, String> detail) {
+        List<Integer> rowIds = new ArrayList<>();
+        ListView<String> list = new ListView<>();
+        for (PlayLog.Stat s : stats) {
+            Integer id = byKey.get(s.key());
+            if (id == null || !tracks.contains(id)) continue;
+            rowIds.add(id);
+            String d = detail.apply(s);
+            list.getItems().add(tracks.title(id) + " — " + tracks.artist(id) + (d.isEmpty() ? "" : "   (" + d + ")"));
+        }
+        if (list.getItems().isEmpty()) list.setPlaceholder(new Label("Nothing yet"));
+        list.setOnMouseClicked(e -> {
+            int i = list.getSelectionModel().getSelectedIndex();
+            if (e.getClickCount() == 2 && i >= 0 && tracks.contains(rowIds.get(i))) playTracks(new int[]{rowIds.get(i)});
+        });
+        return new Tab(title, list);
+    }
+
+    // === playlists ===
+
+    private void newPlaylist(int[] ids) {
+        TextInputDialog dialog = new TextInputDialog("New Playlist");
+        dialog.setTitle("New Playlist");
+        dialog.setHeaderText(ids.length == 0 ? null : ids.length == 1 ? "1 song" : ids.length + " songs");
+        dialog.setContentText("Name:");
+        dialog.initOwner(scene.getWindow());
+        Optional<String> name = dialog.showAndWait();
+        if (name.isEmpty()) return;
+        Playlist playlist = Playlist.create(Playlist.newFile(name.get()), tracks);
+        playlist.add(entries(ids));
+        showPlaylist(playlist);
+    }
 
-        rotateTransition = new RotateTransition(Duration.seconds(15), albumCover);
-        rotateTransition.setByAngle(360);
-        rotateTransition.setCycleCount(RotateTransition.INDEFINITE);
-        rotateTransition.setInterpolator(Interpolator.LINEAR);
-        rotateTransition.play();
+    private void choosePlaylist() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Open Playlist");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Playlists", "*" + Playlist.EXTENSION, "*.m3u", "*.m3u8"));
+        File dir = Playlist.folder().toFile();
+        if (dir.isDirectory()) chooser.setInitialDirectory(dir);
+        File file = chooser.showOpenDialog(scene.getWindow());
+        if (file != null) openPlaylist(file.toPath());
+    }
+
+    /** Opens a saved playlist, or imports an M3U into a new one that fills in as it is read. */
+    private void openPlaylist(Path file) {
+        PlaylistWindow open = playlistWindows.get(file.toAbsolutePath());
+        if (open != null) {
+            open.show();
+            return;
+        }
+        if (!M3u.isPlaylist(file)) {
+            showPlaylist(Playlist.open(file.toAbsolutePath(), tracks));
+            return;
+        }
+        String name = file.getFileName().toString();
+        Playlist playlist = Playlist.create(Playlist.newFile(name.substring(0, name.lastIndexOf('.'))), tracks);
+        showPlaylist(playlist);
+        Playlist.io.execute(() -> {
+            try {
+                int count = M3u.read(file, Playlist.CHUNK, chunk -> Platform.runLater(() -> playlist.add(chunk)));
+                System.out.println("Imported " + count + " entries from " + file);
+            } catch (IOException e) {
+                e.printStackTrace();
+                Platform.runLater(() -> showAlert("Import Failed", "Could not read " + file.getFileName() + ": " + e.getMessage()));
+            }
+        });
+    }
+
+    private void showPlaylist(Playlist playlist) {
+        PlaylistWindow window = new PlaylistWindow(playlist, tracks, scene.getWindow(), this::playTracks);
+        playlistWindows.put(playlist.file(), window);
+        window.setOnHidden(() -> playlistWindows.remove(playlist.file()));
+        window.show();
+    }
+
+    /** Playlist entries for library tracks. */
+    private List<Playlist.Entry> entries(int[] ids) {
+        List<Playlist.Entry> out = new ArrayList<>(ids.length);
+        for (int id : ids) out.add(new Playlist.Entry(tracks.path(id), tracks.artist(id) + " - " + tracks.title(id)));
+        return out;
+    }
+
+    /** Plays {@code ids[0]} now, with the rest as Up Next in place of whatever was queued. */
+    private void playTracks(int[] ids) {
+        queue.clearUpNext();
+        for (int i = 1; i < ids.length; i++) queue.enqueue(ids[i]);
+        loadSong(tracks.rowOf(ids[0]));
+        librarySearch.select(currentTrackId);
+        playSong();
+    }
+
+    /** Logs the time from the previous track's end-of-media to this one actually playing. */
+    private void logGaplessGap(boolean preRolled) {
+        if (endOfMediaNanos == 0) return;
+        double gapMillis = (System.nanoTime() - endOfMediaNanos) / 1e6;
+        endOfMediaNanos = 0;
+        System.out.printf("Track change gap: %.1f ms (%s)%n", gapMillis, preRolled ? "pre-rolled" : "cold load");
+    }
+
+    public void playPreviousSong() {
+        int id = queue.previous();
+        if (id >= 0) skipTo(id);
+    }
+
+    private void startRotation() {
+        rotationWanted = true;
+        updateRotation();
     }
 
     private void pauseRotation() {
-        if (rotateTransition != null) rotateTransition.pause();
+        rotationWanted = false;
+        rotation.pause();
     }
 
     private void stopRotation() {
-        if (rotateTransition != null) {
-            rotateTransition.stop();
-            rotateTransition = null; // important!
-        }
-        albumCover.setRotate(0);
+        rotationWanted = false;
+        rotation.stop();
+        disc.setRotate(0);
+    }
+
+    private void updateRotation() {
+        if (rotationWanted && windowVisible) rotation.play();
+        else if (rotation.getStatus() == Animation.Status.RUNNING) rotation.pause();
+    }
+
+    private void windowVisibilityChanged(Stage stage) {
+        windowVisible = stage.isShowing() && !stage.isIconified();
+        updateRotation();
+    }
+
+    /**
+     * Low power: the CD stack is rasterized once and rotated as a cached bitmap, at
+     * {@code -Dmuzik.lowPowerFps} (default 15) instead of {@code -Dmuzik.cdFps} (default 60).
+     */
+    private void setLowPower(boolean on) {
+        if (rotation != null) logCpu("the last period");
+        lowPower = on;
+        disc.setCache(on);
+        disc.setCacheHint(on ? CacheHint.ROTATE : CacheHint.DEFAULT);
+
+        // the target frame rate is fixed per timeline, so switching builds a new one at the same angle
+        double angle = disc.getRotate();
+        if (rotation != null) rotation.stop();
+        rotation = new Timeline(on ? LOW_POWER_FPS : CD_FPS,
+                new KeyFrame(Duration.ZERO, new KeyValue(disc.rotateProperty(), 0)),
+                new KeyFrame(Duration.seconds(15), new KeyValue(disc.rotateProperty(), 360, Interpolator.LINEAR)));
+        rotation.setCycleCount(Animation.INDEFINITE);
+        if (angle > 0) rotation.jumpTo(Duration.seconds(15 * angle / 360));
+        updateRotation();
+    }
+
+    private void logCpu(String period) {
+        double percent = cpu.sample();
+        if (percent < 0) return;
+        System.out.printf("CPU over %s: %.1f%% of one core (%s, %d fps, CD %s)%n", period, percent,
+                lowPower ? "low power" : "normal", lowPower ? LOW_POWER_FPS : CD_FPS,
+                rotation.getStatus() == Animation.Status.RUNNING ? "spinning" : "still");
     }
 
     private Button createStyledButton(String text, String color) {
@@ -479,64 +1387,159 @@ public class MainUI extends Application {
         vol.setStyle("-fx-text-fill: white");
     }
 
-    public MediaPlayer getMediaPlayer() {
-        return mediaPlayer;
-    }
-
     private void setupSongListContextMenu() {
         ContextMenu contextMenu = new ContextMenu();
 
+        MenuItem playNextItem = new MenuItem("Play Next");
+        playNextItem.setOnAction(e -> queueSelectedSongs(true));
+        MenuItem addToQueueItem = new MenuItem("Add to Up Next");
+        addToQueueItem.setOnAction(e -> queueSelectedSongs(false));
+
         MenuItem deleteItem = new MenuItem("🗑 Delete from Library");
-        deleteItem.setOnAction(e -> deleteSelectedSong());
+        deleteItem.setOnAction(e -> deleteSelectedSongs());
+
+        // open playlists are listed fresh each time the menu opens
+        Menu addToPlaylist = new Menu("Add to Playlist");
+        contextMenu.setOnShowing(e -> {
+            addToPlaylist.getItems().clear();
+            for (PlaylistWindow window : playlistWindows.values()) {
+                MenuItem item = new MenuItem(window.playlist().name());
+                item.setOnAction(a -> window.playlist().add(entries(selectedSongIds())));
+                addToPlaylist.getItems().add(item);
+            }
+            MenuItem newPlaylist = new MenuItem("New Playlist…");
+            newPlaylist.setOnAction(a -> newPlaylist(selectedSongIds()));
+            if (!addToPlaylist.getItems().isEmpty()) addToPlaylist.getItems().add(new SeparatorMenuItem());
+            addToPlaylist.getItems().add(newPlaylist);
+        });
 
-        contextMenu.getItems().add(deleteItem);
+        contextMenu.getItems().addAll(playNextItem, addToQueueItem, addToPlaylist, new SeparatorMenuItem(), deleteItem);
 
         // attach context menu to list view
         songListView.setContextMenu(contextMenu);
     }
 
-    private void deleteSelectedSong() {
-        int selectedIndex = songListView.getSelectionModel().getSelectedIndex();
-        if (selectedIndex < 0 || selectedIndex >= songURLs.size()) {
+    /** Ids of the selected songs, in list order. */
+    private int[] selectedSongIds() {
+        List<Integer> indices = new ArrayList<>(songListView.getSelectionModel().getSelectedIndices());
+        indices.sort(null);
+        return indices.stream().mapToInt(librarySearch::idAt).filter(id -> id >= 0).toArray();
+    }
+
+    /** Puts the selected songs, in list order, at the front or the end of Up Next. */
+    private void queueSelectedSongs(boolean front) {
+        int[] ids = selectedSongIds();
+        if (front) {
+            for (int i = ids.length - 1; i >= 0; i--) queue.playNext(ids[i]);
+        } else {
+            for (int id : ids) queue.enqueue(id);
+        }
+        if (ids.length > 0) neighbourDelay.playFromStart();
+    }
+
+    private void deleteSelectedSongs() {
+        List<Integer> indices = new ArrayList<>(songListView.getSelectionModel().getSelectedIndices());
+        int[] ids = indices.stream().mapToInt(librarySearch::idAt).filter(id -> id >= 0).toArray();
+        if (ids.length == 0) {
             showAlert("No Selection", "Please select a song to delete.");
             return;
         }
 
-        String songTitle = songTitles.get(selectedIndex);
-        URL songURL = songURLs.get(selectedIndex);
-
         // Confirm deletion
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
-        confirm.setTitle("Delete Song");
-        confirm.setHeaderText("Delete \"" + songTitle + "\" from your library?");
-        confirm.setContentText("This will permanently remove the file from your songs folder.");
+        confirm.setTitle(ids.length == 1 ? "Delete Song" : "Delete Songs");
+        confirm.setHeaderText(ids.length == 1
+                ? "Delete \"" + tracks.title(ids[0]) + "\" from your library?"
+                : "Delete " + ids.length + " songs from your library?");
+        confirm.setContentText("This will permanently remove the files from your disk.");
+        confirm.initOwner(scene.getWindow());
         Optional<ButtonType> result = confirm.showAndWait();
-
         if (result.isEmpty() || result.get() != ButtonType.OK) return;
 
-        try {
-            File songFile = new File(songURL.toURI());
-
-            if (songFile.exists() && songFile.delete()) {
-                System.out.println("Deleted: " + songFile.getName());
+        int firstIndex = indices.stream().mapToInt(Integer::intValue).min().orElse(0);
+        deleteSongs(ids);
 
-                // Refresh the entire list to stay consistent
-                loadSongsFromResources();
+        // select the song that took the place of the first deleted one
+        int listSize = songListView.getItems().size();
+        songListView.getSelectionModel().clearSelection();
+        if (listSize > 0) songListView.getSelectionModel().select(Math.min(firstIndex, listSize - 1));
+    }
 
-                // Optional: auto-select the next song if available
-                if (!songURLs.isEmpty()) {
-                    int nextIndex = Math.min(selectedIndex, songURLs.size() - 1);
-                    songListView.getSelectionModel().select(nextIndex);
-                }
+    /**
+     * Deletes the files of {@code ids}. The entries leave the list right away in one batch; the files
+     * are deleted on a background thread, after any player holding them was released. Files that
+     * could not be deleted are put back and reported together in one alert.
+     */
+    private void deleteSongs(int[] ids) {
+        long start = System.nanoTime();
+        PlayerEvents.Delete event = new PlayerEvents.Delete();
+        event.begin();
+        List<Path> paths = new ArrayList<>(ids.length);
+        boolean currentDeleted = false;
+        for (int id : ids) {
+            paths.add(tracks.path(id));
+            players.evict(id);
+            currentDeleted |= id == currentTrackId;
+        }
 
-                showAlert("Deleted", "\"" + songFile.getName() + "\" was removed successfully.");
+        MediaPlayer player = playback.player();
+        boolean wasPlaying = player != null && player.getStatus() == MediaPlayer.Status.PLAYING;
+        if (currentDeleted) currentRowHint = tracks.rowOf(currentTrackId);
+        pendingSkipId = -1;
+        skipDelay.stop();
+        tracks.removeAll(ids);
+
+        if (currentDeleted) {
+            // move on to the track that took its place, or let go of the player if nothing is left
+            if (!tracks.isEmpty()) {
+                loadSong(Math.min(currentRowHint, tracks.size() - 1));
+                librarySearch.select(currentTrackId);
+                if (wasPlaying) playSong();
             } else {
-                showAlert("Error", "Failed to delete song file. It may be in use.");
+                loadSong(-1);
+                songTitleLabel.setText("");
+                artistLabel.setText("");
+                albumCover.setFill(Color.web("#c9c9ca"));
+            }
+        }
+
+        Thread worker = new Thread(() -> {
+            List<Path> deleted = new ArrayList<>(paths.size());
+            Map<Path, String> failed = new HashMap<>();
+            for (Path path : paths) {
+                long fileStart = System.nanoTime();
+                try {
+                    Files.deleteIfExists(path);
+                    deleted.add(path);
+                } catch (Exception e) {
+                    failed.put(path, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                }
+                Metrics.timer("delete.file").recordSince(fileStart);
             }
+            event.files = paths.size();
+            event.failed = failed.size();
+            event.commit();
+            Metrics.timer("delete.batch").recordSince(start);
+            System.out.println("Deleted " + deleted.size() + " of " + paths.size() + " song file(s)");
+            // keeps the library index in step; files that are still there come back into the list
+            applyLibraryChanges(failed.keySet(), deleted);
+            if (!failed.isEmpty()) Platform.runLater(() -> showDeleteFailures(paths.size(), failed));
+        }, "song-delete");
+        worker.setDaemon(true);
+        worker.start();
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            showAlert("Error", "Could not delete file: " + e.getMessage());
+    private void showDeleteFailures(int total, Map<Path, String> failed) {
+        StringBuilder msg = new StringBuilder();
+        msg.append(failed.size()).append(" of ").append(total).append(" file(s) could not be deleted:\n");
+        int shown = 0;
+        for (Map.Entry<Path, String> e : failed.entrySet()) {
+            if (shown++ == 10) {
+                msg.append("… and ").append(failed.size() - 10).append(" more");
+                break;
+            }
+            msg.append("\n").append(e.getKey().getFileName()).append(" (").append(e.getValue()).append(")");
         }
+        showAlert("Delete Incomplete", msg.toString());
     }
 }
@@ -0,0 +1,74 @@
+package org.example.ugplayer;
+
+import javafx.application.Platform;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fallback metadata reader that asks JavaFX to open the file. Used only when {@link TagReader}
+ * cannot parse a file; at most a few native players exist at any time.
+ */
+final class MediaProbe {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final Semaphore permits;
+
+    MediaProbe(int maxConcurrent) {
+        permits = new Semaphore(maxConcurrent);
+    }
+
+    /** Blocks the calling worker (never the FX thread) until the probe finishes or times out. */
+    TrackInfo probe(Path path) throws Exception {
+        permits.acquire();
+        try {
+            CompletableFuture<TrackInfo> result = new CompletableFuture<>();
+            AtomicReference<MediaPlayer> opened = new AtomicReference<>();
+            Platform.runLater(() -> {
+                if (result.isDone()) return; // timed out before the FX thread got to it
+                try {
+                    Media media = new Media(path.toUri().toString());
+                    MediaPlayer player = new MediaPlayer(media);
+                    opened.set(player);
+                    player.setOnReady(() -> {
+                        Map<String, Object> meta = media.getMetadata();
+                        result.complete(new TrackInfo(path, asString(meta.get("title")),
+                                asString(meta.get("artist")), asString(meta.get("album"))));
+                        player.dispose();
+                    });
+                    player.setOnError(() -> {
+                        result.completeExceptionally(player.getError());
+                        player.dispose();
+                    });
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            try {
+                return result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                // the permit is released below, so the player that never became ready must go as well
+                result.completeExceptionally(e);
+                Platform.runLater(() -> {
+                    MediaPlayer player = opened.get();
+                    if (player != null) player.dispose();
+                });
+                throw e;
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static String asString(Object value) {
+        return value instanceof String s ? s : null;
+    }
+}
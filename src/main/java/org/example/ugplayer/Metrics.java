@@ -0,0 +1,128 @@
+package org.example.ugplayer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process registry of operation timings and throughputs, cheap enough to record on every call
+ * and safe from any thread. Timers keep a count, the total and the maximum plus a log-linear
+ * histogram (four buckets per power of two), so percentiles are within 25% without storing samples.
+ * {@link #summary()} renders everything as plain text.
+ */
+final class Metrics {
+
+    private static final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private static final Map<String, Throughput> throughputs = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /** Latency distribution of one kind of operation. */
+    static final class Timer {
+        private static final int SUB_BUCKETS = 4;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+
+        void record(long nanos) {
+            if (nanos < 0) return;
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            buckets.incrementAndGet(bucket(nanos));
+        }
+
+        /** Records the time since {@code startNanos}, a {@link System#nanoTime()} value. */
+        void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        double meanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        double maxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        /** Upper bound of the bucket holding the {@code p}-th percentile ({@code p} in 0..100). */
+        double percentileMillis(double p) {
+            long n = count.sum();
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(p / 100 * n);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return Math.min(upperBound(i), maxNanos.get()) / 1e6;
+            }
+            return maxMillis();
+        }
+
+        private static int bucket(long nanos) {
+            if (nanos < SUB_BUCKETS) return (int) nanos;
+            int exp = 63 - Long.numberOfLeadingZeros(nanos);
+            int sub = (int) (nanos >>> (exp - 2)) & (SUB_BUCKETS - 1);
+            return exp * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int bucket) {
+            int exp = bucket / SUB_BUCKETS;
+            int sub = bucket % SUB_BUCKETS;
+            if (exp < 2) return bucket;
+            return ((long) (SUB_BUCKETS + sub + 1) << (exp - 2)) - 1;
+        }
+    }
+
+    /** Bytes moved and the time spent moving them. */
+    static final class Throughput {
+        private final LongAdder operations = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void record(long byteCount, long elapsedNanos) {
+            operations.increment();
+            bytes.add(byteCount);
+            nanos.add(elapsedNanos);
+        }
+
+        double megabytesPerSecond() {
+            long t = nanos.sum();
+            return t == 0 ? 0 : bytes.sum() / (1024.0 * 1024.0) / (t / 1e9);
+        }
+    }
+
+    static Timer timer(String name) {
+        return timers.computeIfAbsent(name, n -> new Timer());
+    }
+
+    static Throughput throughput(String name) {
+        return throughputs.computeIfAbsent(name, n -> new Throughput());
+    }
+
+    /** One line per timer and throughput that has seen at least one operation. */
+    static String summary() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-24s %8s %10s %10s %10s %10s%n", "operation", "count", "mean ms", "p50 ms", "p95 ms", "max ms"));
+        timers.forEach((name, t) -> {
+            if (t.count() == 0) return;
+            out.append(String.format("%-24s %8d %10.2f %10.2f %10.2f %10.2f%n", name, t.count(), t.meanMillis(),
+                    t.percentileMillis(50), t.percentileMillis(95), t.maxMillis()));
+        });
+        if (!throughputs.isEmpty()) {
+            out.append(String.format("%n%-24s %8s %10s %10s%n", "transfer", "count", "MB", "MB/s"));
+            new ConcurrentSkipListMap<>(throughputs).forEach((name, t) -> out.append(String.format("%-24s %8d %10.1f %10.1f%n",
+                    name, t.operations.sum(), t.bytes.sum() / (1024.0 * 1024.0), t.megabytesPerSecond())));
+        }
+        return out.toString();
+    }
+}
@@ -1,33 +1,27 @@
 package org.example.ugplayer;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
-import javafx.beans.value.ChangeListener;
-import javafx.collections.MapChangeListener;
-import javafx.collections.ObservableMap;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.control.ProgressBar;
 import javafx.scene.image.Image;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
-import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.ImagePattern;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
-import javafx.scene.text.Font;
-import javafx.scene.text.Text;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 import javafx.util.Duration;
 
-import java.util.Map;
+import java.util.Arrays;
 
 public class MiniPlayerUI {
 
@@ -40,14 +34,36 @@ public class MiniPlayerUI {
     private final Label totalTimeLabel;
     private final Rectangle albumCover;
     private final Button playPauseBtn;
-    private final ProgressBar progressBar;
+    private final WaveformBar progressBar;
 
     private boolean isPlaying = false;
-    private MediaPlayer sharedPlayer;
-    private ChangeListener<MediaPlayer.Status> statusListener;
-    private ChangeListener<Duration> timeListener;
+    private final PlaybackBus playback;
+    private final Waveforms waveforms;
+    private PlaybackBus.Track shownTrack;
+    private final FontFitter fonts = new FontFitter(256);
+
+    // === position display: the latest values are applied on the next pulse, and only what changed ===
+    private double pendingSeconds;
+    private double pendingTotalSeconds;
+    private boolean positionQueued;
+    private int shownSecond = -1;
+    private int shownTotalSecond = -1;
+    private final AnimationTimer positionPulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            positionQueued = false;
+            applyPosition();
+        }
+    };
+
+    // === "m:ss" strings, built once per second value on first use ===
+    private static final int CACHED_SECONDS = 10 * 3600;
+    private static String[] timeStrings = new String[0];
 
-    public MiniPlayerUI(MediaPlayer sharedPlayer) {
+    public MiniPlayerUI(PlaybackBus playback, Waveforms waveforms) {
+        this.playback = playback;
+        this.waveforms = waveforms;
         stage = new Stage(StageStyle.TRANSPARENT);
         stage.setAlwaysOnTop(true);
 
@@ -86,8 +102,8 @@ public class MiniPlayerUI {
         artistLabel.setMinHeight(16);
 
         // Apply dynamic font resizing
-        setupAutoFontSize(titleLabel, 13, 9);
-        setupAutoFontSize(artistLabel, 12, 8);
+        fonts.bind(titleLabel, 13, 9);
+        fonts.bind(artistLabel, 12, 8);
 
         albumLabel = new Label("Album");
         positionLabel = new Label("1 of 3");
@@ -98,10 +114,9 @@ public class MiniPlayerUI {
         screenContent.setAlignment(Pos.CENTER_LEFT);
         screen.getChildren().add(screenContent);
 
-        // === Progress Bar + Time Labels ===
-        progressBar = new ProgressBar(0);
+        // === Waveform seek bar (a plain bar until the track's peaks are known) ===
+        progressBar = new WaveformBar();
         progressBar.setPrefWidth(150);
-        progressBar.setStyle("-fx-accent: #007BFF;"); // blue fill
 
         currentTimeLabel = new Label("0:00");
         currentTimeLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: #555;");
@@ -113,15 +128,7 @@ public class MiniPlayerUI {
         HBox.setHgrow(progressBar, Priority.ALWAYS);
 
         // === Click-to-seek feature ===
-        progressBar.setOnMouseClicked(e -> {
-            if (sharedPlayer != null && sharedPlayer.getTotalDuration() != null
-                    && !sharedPlayer.getTotalDuration().isUnknown()) {
-                double clickX = e.getX();
-                double width = progressBar.getWidth();
-                double ratio = Math.min(Math.max(clickX / width, 0), 1);
-                sharedPlayer.seek(sharedPlayer.getTotalDuration().multiply(ratio));
-            }
-        });
+        progressBar.setOnMouseClicked(e -> playback.seek(e.getX() / progressBar.getWidth()));
 
         screen.getChildren().add(progressRow);
 
@@ -161,13 +168,9 @@ public class MiniPlayerUI {
         stage.setScene(scene);
 
         // === Buttons ===
-        prevBtn.setOnAction(e -> {
-            if (MainUI.instance != null) MainUI.instance.playPreviousSong();
-        });
-        nextBtn.setOnAction(e -> {
-            if (MainUI.instance != null) MainUI.instance.playNextSong();
-        });
-        playPauseBtn.setOnAction(e -> togglePlayPause());
+        prevBtn.setOnAction(e -> playback.previous());
+        nextBtn.setOnAction(e -> playback.next());
+        playPauseBtn.setOnAction(e -> playback.togglePlay());
 
         // === Drag Window ===
         final double[] offset = new double[2];
@@ -180,137 +183,131 @@ public class MiniPlayerUI {
             stage.setY(e.getScreenY() - offset[1]);
         });
 
-        if (sharedPlayer != null) setSharedPlayer(sharedPlayer);
-    }
-
-    public void show() {
-        stage.show();
-    }
-
-    /**
-     * Updates text and image manually (still supported)
-     */
-    public void update(String title, String artist, String album, int index, int total, Image artImage) {
-        titleLabel.setText(title != null ? title : "Unknown Title");
-        artistLabel.setText(artist != null ? artist : "Unknown Artist");
-        albumLabel.setText(album != null ? album : "Unknown Album");
-        positionLabel.setText((index + 1) + " of " + total);
-
-        if (artImage != null)
-            albumCover.setFill(new ImagePattern(artImage));
-        else
-            albumCover.setFill(Color.GRAY);
-    }
-
-    public void setSharedPlayer(MediaPlayer player) {
-        if (sharedPlayer != null) {
-            if (statusListener != null) sharedPlayer.statusProperty().removeListener(statusListener);
-            if (timeListener != null) sharedPlayer.currentTimeProperty().removeListener(timeListener);
-            sharedPlayer.setOnReady(null);
-        }
-
-        this.sharedPlayer = player;
-        if (player == null) return;
-
-        Media media = player.getMedia();
-        if (media != null) loadMetadata(media);
-
-        statusListener = (obs, old, now) -> syncPlayPause(now == MediaPlayer.Status.PLAYING);
-        timeListener = (obs, oldTime, newTime) -> {
-        player.statusProperty().addListener((obs, old, now) -> syncPlayPause(now == MediaPlayer.Status.PLAYING));
-        player.currentTimeProperty().addListener((obs, oldTime, newTime) -> {
-            if (player.getTotalDuration() != null && !player.getTotalDuration().isUnknown()) {
-                double progress = newTime.toSeconds() / player.getTotalDuration().toSeconds();
-                progressBar.setProgress(progress);
-                currentTimeLabel.setText(formatTime(newTime));
-                totalTimeLabel.setText(formatTime(player.getTotalDuration()));
+        // only listens while the window is up; the bus replays the current state when it shows again
+        playback.subscribeWhileShowing(stage, new PlaybackBus.Listener() {
+            @Override
+            public void track(PlaybackBus.Track track) {
+                showTrack(track);
             }
-        };
-
-        player.statusProperty().addListener(statusListener);
-        player.currentTimeProperty().addListener(timeListener);
-        progressBar.setProgress(0);
-        currentTimeLabel.setText("0:00");
-        if (player.getTotalDuration() != null && !player.getTotalDuration().isUnknown()) {
-            totalTimeLabel.setText(formatTime(player.getTotalDuration()));
-        }
-        syncPlayPause(player.getStatus() == MediaPlayer.Status.PLAYING);
-        });
-        player.setOnReady(() -> {
-            Duration total = player.getMedia().getDuration();
-            progressBar.setProgress(0);
-            currentTimeLabel.setText("0:00");
-            totalTimeLabel.setText(formatTime(total));
-        });
-    }
-
-    /**
-     * Reads and updates metadata from the MP3 file
-     */
-    private void loadMetadata(Media media) {
-        if (media == null) return;
-
-        ObservableMap<String, Object> metadata = media.getMetadata();
 
-        // Listener for metadata changes
-        metadata.addListener((MapChangeListener<String, Object>) change -> Platform.runLater(() -> {
-            if (change.wasAdded()) {
-                String key = change.getKey();
-                Object val = change.getValueAdded();
+            @Override
+            public void status(MediaPlayer.Status status) {
+                syncPlayPause(status == MediaPlayer.Status.PLAYING);
+            }
 
-                if (val == null) return;
+            @Override
+            public void position(Duration current, Duration total) {
+                showPosition(current, total);
+            }
 
+            @Override
+            public void metadata(String key, Object value) {
                 switch (key.toLowerCase()) {
-                    case "title" -> titleLabel.setText(val.toString());
-                    case "artist" -> artistLabel.setText(val.toString());
-                    case "album" -> albumLabel.setText(val.toString());
-                    case "image" -> {
-                        if (val instanceof Image image) albumCover.setFill(new ImagePattern(image));
+                    case "title" -> titleLabel.setText(value.toString());
+                    case "artist" -> artistLabel.setText(value.toString());
+                    case "album" -> albumLabel.setText(value.toString());
+                    default -> {
+                        // cover art comes from the shared art cache, see cover()
                     }
                 }
             }
-        }));
-
-        // Read initial metadata that might already be present
-        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
-            String key = entry.getKey();
-            Object val = entry.getValue();
-            if (val == null) continue;
-
-            switch (key.toLowerCase()) {
-                case "title" -> titleLabel.setText(val.toString());
-                case "artist" -> artistLabel.setText(val.toString());
-                case "album" -> albumLabel.setText(val.toString());
-                case "image" -> {
-                    if (val instanceof Image image) albumCover.setFill(new ImagePattern(image));
-                }
+
+            @Override
+            public void cover(Image thumbnail) {
+                setArt(thumbnail);
             }
-        }
+        });
     }
 
-    private void togglePlayPause() {
-        if (MainUI.instance == null || MainUI.instance.getMediaPlayer() == null) return;
-        MediaPlayer player = MainUI.instance.getMediaPlayer();
+    public void show() {
+        stage.show();
+    }
 
-        if (player.getStatus() == MediaPlayer.Status.PLAYING) {
-            MainUI.instance.pauseSong();
-            syncPlayPause(false);
+    private void showTrack(PlaybackBus.Track track) {
+        shownTrack = track;
+        progressBar.setPeaks(null);
+        if (track != null) {
+            waveforms.get(track.path()).thenAccept(peaks -> Platform.runLater(() -> {
+                if (shownTrack == track) progressBar.setPeaks(peaks);
+            }));
+        }
+        if (track == null) {
+            titleLabel.setText("Song Title");
+            artistLabel.setText("Artist");
+            albumLabel.setText("Album");
+            positionLabel.setText("");
         } else {
-            MainUI.instance.playSong();
-            syncPlayPause(true);
+            titleLabel.setText(track.title() != null ? track.title() : "Unknown Title");
+            artistLabel.setText(track.artist() != null ? track.artist() : "Unknown Artist");
+            albumLabel.setText(track.album() != null && !track.album().isEmpty() ? track.album() : "Unknown Album");
+            positionLabel.setText((track.row() + 1) + " of " + track.count());
         }
+        pendingSeconds = 0;
+        pendingTotalSeconds = 0;
+        shownSecond = -1;
+        shownTotalSecond = -1;
+        progressBar.setProgress(0);
+        currentTimeLabel.setText(formatTime(0));
+        totalTimeLabel.setText(formatTime(0));
     }
 
-    void syncPlayPause(boolean playing) {
+    /** Remembers the position; several updates within one frame cause a single redraw. */
+    private void showPosition(Duration current, Duration total) {
+        if (total == null || total.isUnknown() || total.toMillis() <= 0) return;
+        pendingSeconds = current.toSeconds();
+        pendingTotalSeconds = total.toSeconds();
+        if (!positionQueued) {
+            positionQueued = true;
+            positionPulse.start();
+        }
+    }
+
+    private void applyPosition() {
+        int second = (int) pendingSeconds;
+        int totalSecond = (int) pendingTotalSeconds;
+        if (second != shownSecond) {
+            shownSecond = second;
+            currentTimeLabel.setText(formatTime(second));
+        }
+        if (totalSecond != shownTotalSecond) {
+            shownTotalSecond = totalSecond;
+            totalTimeLabel.setText(formatTime(totalSecond));
+        }
+        // skip updates smaller than half a pixel of the bar
+        double progress = Math.min(1, pendingSeconds / pendingTotalSeconds);
+        double width = Math.max(1, progressBar.getWidth());
+        if (Math.abs(progress - progressBar.getProgress()) * width >= 0.5) progressBar.setProgress(progress);
+    }
+
+    /** Shows a cover thumbnail; the main window publishes the 70px one from its art cache. */
+    private void setArt(Image artImage) {
+        if (artImage != null)
+            albumCover.setFill(new ImagePattern(artImage));
+        else
+            albumCover.setFill(Color.GRAY);
+    }
+
+    private void syncPlayPause(boolean playing) {
         isPlaying = playing;
         playPauseBtn.setText(playing ? "⏸" : "▶");
     }
 
-    private String formatTime(Duration time) {
-        int seconds = (int) time.toSeconds();
-        int minutes = seconds / 60;
-        int sec = seconds % 60;
-        return String.format("%d:%02d", minutes, sec);
+    static String formatTime(int seconds) {
+        if (seconds < 0) seconds = 0;
+        if (seconds >= CACHED_SECONDS) return (seconds / 60) + ":" + twoDigits(seconds % 60);
+        if (seconds >= timeStrings.length) {
+            timeStrings = Arrays.copyOf(timeStrings, Math.min(CACHED_SECONDS, Math.max(seconds + 1, timeStrings.length * 2)));
+        }
+        String text = timeStrings[seconds];
+        if (text == null) {
+            text = (seconds / 60) + ":" + twoDigits(seconds % 60);
+            timeStrings[seconds] = text;
+        }
+        return text;
+    }
+
+    private static String twoDigits(int n) {
+        return n < 10 ? "0" + n : Integer.toString(n);
     }
 
     private Button createWheelButton(String symbol) {
@@ -318,41 +315,4 @@ public class MiniPlayerUI {
         btn.setStyle("-fx-background-color: transparent; -fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #bdbcbc;");
         return btn;
     }
-
-    // Automatically resize font to fit width (robust version)
-    private void setupAutoFontSize(Label label, double maxFont, double minFont) {
-        ChangeListener<Object> resizeListener = (obs, oldVal, newVal) -> {
-            Platform.runLater(() -> {
-                double labelWidth = label.getWidth();
-                if (labelWidth <= 0) labelWidth = label.getPrefWidth();
-
-                if (labelWidth <= 0 || label.getText() == null) return;
-
-                Text text = new Text(label.getText());
-                double fontSize = maxFont;
-                text.setFont(Font.font(fontSize));
-
-                while (text.getLayoutBounds().getWidth() > labelWidth && fontSize > minFont && !label.isWrapText()) {
-                    fontSize -= 0.3;
-                    text.setFont(Font.font(fontSize));
-                }
-                label.setFont(Font.font(fontSize));
-            });
-        };
-
-        label.widthProperty().addListener(resizeListener);
-        label.textProperty().addListener(resizeListener);
-
-        label.sceneProperty().addListener((obs, oldScene, newScene) -> {
-            if (newScene != null) {
-                newScene.windowProperty().addListener((o2, oldWin, newWin) -> {
-                    if (newWin != null) {
-                        newWin.showingProperty().addListener((o3, wasShowing, isShowing) -> {
-                            if (isShowing) Platform.runLater(() -> resizeListener.changed(null, null, null));
-                        });
-                    }
-                });
-            }
-        });
-    }
 }
@@ -0,0 +1,141 @@
+package org.example.ugplayer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent audio-payload lengths and hashes for the duplicate finder, stored in
+ * {@code ~/.muzik/payload-hashes}. Like {@link LibraryIndex}, an entry is only trusted while the
+ * file's size and modification time match, so later runs only hash new or changed files.
+ *
+ * <p>File layout (big-endian): {@code "MZPH"}, version, entry count, then per entry the path, size,
+ * mtime, payload length and hash (a length, 0 if not hashed yet, plus the digest bytes).
+ */
+final class PayloadHashes {
+
+    private static final int MAGIC = 0x4D5A5048; // "MZPH"
+    private static final int VERSION = 1;
+
+    /** Payload length of a file, plus its digest once one was needed. */
+    record Entry(long size, long modified, long payloadLength, byte[] hash) {
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    private PayloadHashes(Path file) {
+        this.file = file;
+    }
+
+    static PayloadHashes load() {
+        PayloadHashes store = new PayloadHashes(Path.of(System.getProperty("user.home"), ".muzik", "payload-hashes"));
+        try {
+            store.read();
+        } catch (NoSuchFileException e) {
+            // first run
+        } catch (Exception e) {
+            System.err.println("Ignoring unreadable hash store " + store.file + ": " + e.getMessage());
+            store.entries.clear();
+        }
+        return store;
+    }
+
+    /** The stored entry for {@code path} if it still matches the file on disk. */
+    Entry lookup(Path path, long size, long modified) {
+        Entry e = entries.get(key(path));
+        return e != null && e.size() == size && e.modified() == modified ? e : null;
+    }
+
+    void put(Path path, Entry entry) {
+        entries.put(key(path), entry);
+        dirty = true;
+    }
+
+    /** Forgets files that are no longer part of the library. */
+    void retainOnly(Collection<Path> paths) {
+        Set<String> keep = new HashSet<>(paths.size() * 2);
+        for (Path p : paths) keep.add(key(p));
+        if (entries.keySet().retainAll(keep)) dirty = true;
+    }
+
+    synchronized void save() {
+        if (!dirty) return;
+        dirty = false;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    byte[] path = e.getKey().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(path.length);
+                    out.write(path);
+                    Entry v = e.getValue();
+                    out.writeLong(v.size());
+                    out.writeLong(v.modified());
+                    out.writeLong(v.payloadLength());
+                    byte[] hash = v.hash() != null ? v.hash() : new byte[0];
+                    out.writeInt(hash.length);
+                    out.write(hash);
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            System.err.println("Failed to save hash store " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void read() throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = ch.size();
+            if (length > Integer.MAX_VALUE) throw new IOException("hash store too large");
+            ByteBuffer buf = ByteBuffer.allocate((int) length);
+            while (buf.hasRemaining() && ch.read(buf) >= 0) {
+                // keep reading
+            }
+            buf.flip();
+
+            if (buf.getInt() != MAGIC) throw new IOException("not a hash store");
+            int version = buf.getInt();
+            if (version != VERSION) throw new IOException("unsupported hash store version " + version);
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] path = new byte[buf.getInt()];
+                buf.get(path);
+                long size = buf.getLong();
+                long modified = buf.getLong();
+                long payloadLength = buf.getLong();
+                byte[] hash = new byte[buf.getInt()];
+                buf.get(hash);
+                entries.put(new String(path, StandardCharsets.UTF_8), new Entry(size, modified, payloadLength, hash.length > 0 ? hash : null));
+            }
+        }
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,430 @@
+package org.example.ugplayer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * What was played, and how often. Every play or skip is one fixed-size record appended to
+ * {@code plays.log}, a memory-mapped file, and folded into per-track counters right away, so queries
+ * never scan events: most played, recently played and never played are a pass over the counters (one
+ * per track) and take milliseconds however long the history is.
+ *
+ * <p>All file work runs on one background thread; {@link #record} only queues the event, so the FX
+ * thread never waits for the disk. Writes are forced out together, after {@code FORCE_EVERY} events
+ * or {@code FORCE_DELAY_MS}, whichever comes first. Once the log holds {@code COMPACT_EVENTS} events
+ * the counters are saved to {@code plays.stats} and the log starts over.
+ *
+ * <p>Tracks are keyed by a 64-bit hash of their absolute path. Log layout (big-endian): {@code "MZPE"},
+ * version, generation, end of the last forced record, then records of key, time (epoch millis),
+ * seconds listened and kind (1 played, 2 skipped). The stats file holds the generation and log offset
+ * it covers, then key, plays, skips and last played per track; after a crash the log is folded in from
+ * there, up to the first record that never reached the disk.
+ */
+final class PlayLog {
+
+    /** Counters of one track; {@code lastPlayed} is epoch millis, 0 if it was only ever skipped. */
+    record Stat(long key, int plays, int skips, long lastPlayed) {
+    }
+
+    private static final int LOG_MAGIC = 0x4D5A5045; // "MZPE"
+    private static final int STATS_MAGIC = 0x4D5A5053; // "MZPS"
+    private static final int VERSION = 1;
+    private static final int HEADER = 24;
+    private static final int END_OFFSET = 16;
+    private static final int RECORD = 24;
+    private static final int GROW = RECORD * 16 * 1024;
+    private static final int FORCE_EVERY = 256;
+    private static final long FORCE_DELAY_MS = 2000;
+    private static final int COMPACT_EVENTS = 200_000;
+    private static final int PLAYED = 1;
+    private static final int SKIPPED = 2;
+
+    private final Path logFile;
+    private final Path statsFile;
+    private final ScheduledThreadPoolExecutor worker = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "play-log");
+        t.setDaemon(true);
+        return t;
+    });
+    // events from record(), drained in order by the worker
+    private final Queue<long[]> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+    private final Metrics.Timer forceTimer = Metrics.timer("playlog.force");
+    private final Metrics.Timer queryTimer = Metrics.timer("playlog.query");
+
+    // everything below belongs to the worker thread
+    private FileChannel channel;
+    private MappedByteBuffer log;
+    private long generation;
+    private int end = HEADER;
+    private int unforced;
+    private ScheduledFuture<?> delayedForce;
+    private final Counters counters = new Counters();
+
+    PlayLog() {
+        this(Path.of(System.getProperty("user.home"), ".muzik"));
+    }
+
+    PlayLog(Path dir) {
+        logFile = dir.resolve("plays.log");
+        statsFile = dir.resolve("plays.stats");
+        // a cancelled delayed force must not keep the worker alive until its time comes
+        worker.setRemoveOnCancelPolicy(true);
+        worker.execute(this::open);
+    }
+
+    /** Stable key of a track, also across runs. */
+    static long key(Path path) {
+        String s = path.toAbsolutePath().normalize().toString();
+        long h = 0xcbf29ce484222325L; // FNV-1a, then a final mix so nearby paths spread over the table
+        for (int i = 0; i < s.length(); i++) h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h != 0 ? h : 1;
+    }
+
+    /** Logs that {@code path} was played to the end or long enough ({@code played}), or skipped. Never blocks. */
+    void record(Path path, boolean played, int secondsListened) {
+        pending.add(new long[]{key(path), System.currentTimeMillis(), secondsListened, played ? PLAYED : SKIPPED});
+        if (drainQueued.compareAndSet(false, true)) worker.execute(this::drain);
+    }
+
+    /** Tracks with the most plays, most first. */
+    CompletableFuture<List<Stat>> mostPlayed(int n) {
+        return query(() -> counters.top(n, true));
+    }
+
+    /** Tracks by when they were last played, latest first. */
+    CompletableFuture<List<Stat>> recentlyPlayed(int n) {
+        return query(() -> counters.top(n, false));
+    }
+
+    /** The first {@code n} of {@code keys} (in their order) that were never played; skips do not count as plays. */
+    CompletableFuture<long[]> neverPlayed(long[] keys, int n) {
+        return query(() -> {
+            long[] out = new long[Math.min(n, keys.length)];
+            int found = 0;
+            for (int i = 0; i < keys.length && found < out.length; i++) {
+                if (counters.plays(keys[i]) == 0) out[found++] = keys[i];
+            }
+            return Arrays.copyOf(out, found);
+        });
+    }
+
+    /** Forces out what is queued and saves the counters. */
+    void close() {
+        worker.execute(() -> {
+            drain();
+            compact();
+            if (delayedForce != null) delayedForce.cancel(false);
+        });
+        worker.shutdown();
+        try {
+            worker.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> query(Supplier<T> q) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            T result = q.get();
+            queryTimer.recordSince(start);
+            return result;
+        }, worker);
+    }
+
+    // === worker thread ===
+
+    private void open() {
+        long start = System.nanoTime();
+        long statsGeneration = 0;
+        long folded = HEADER;
+        try {
+            Files.createDirectories(logFile.getParent());
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(statsFile), 1 << 16))) {
+                if (in.readInt() != STATS_MAGIC || in.readInt() != VERSION) throw new IOException("not a play statistics file");
+                statsGeneration = in.readLong();
+                folded = in.readLong();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) counters.load(in.readLong(), in.readInt(), in.readInt(), in.readLong());
+            } catch (NoSuchFileException e) {
+                // nothing played yet
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable play statistics " + statsFile + ": " + e.getMessage());
+                counters.clear();
+                statsGeneration = 0;
+                folded = HEADER;
+            }
+
+            channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean fresh = channel.size() < HEADER;
+            map(Math.max(channel.size(), GROW));
+            if (fresh || log.getInt(0) != LOG_MAGIC || log.getInt(4) != VERSION) {
+                if (!fresh) System.err.println("Starting over with unreadable play log " + logFile);
+                end = log.capacity() / RECORD * RECORD;
+                reset(statsGeneration + 1);
+            } else {
+                generation = log.getLong(8);
+                // events up to "folded" are already in the stats, unless the log has started over since
+                int from = generation == statsGeneration ? (int) folded : HEADER;
+                int pos = HEADER;
+                int replayed = 0;
+                // the header's end lags behind when the last force did not finish; records that never
+                // reached the disk read as zeros
+                while (pos + RECORD <= log.capacity() && log.getLong(pos + 8) != 0) {
+                    if (pos >= from) {
+                        counters.add(log.getLong(pos), log.getLong(pos + 8), log.getInt(pos + 20));
+                        replayed++;
+                    }
+                    pos += RECORD;
+                }
+                end = pos;
+                System.out.printf("Play log: %d tracks, %d events replayed in %d ms%n",
+                        counters.size(), replayed, (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (IOException e) {
+            System.err.println("Play history is not saved: " + e.getMessage());
+            log = null;
+        }
+    }
+
+    private void drain() {
+        drainQueued.set(false);
+        for (long[] e; (e = pending.poll()) != null; ) append(e[0], e[1], (int) e[2], (int) e[3]);
+    }
+
+    private void append(long key, long time, int seconds, int kind) {
+        counters.add(key, time, kind);
+        if (log == null) return;
+        try {
+            if (end + RECORD > log.capacity()) map(log.capacity() + GROW);
+            log.putLong(end, key).putLong(end + 8, time).putInt(end + 16, seconds).putInt(end + 20, kind);
+            end += RECORD;
+            if (++unforced >= FORCE_EVERY) {
+                force();
+            } else if (delayedForce == null) {
+                delayedForce = worker.schedule(this::force, FORCE_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+            if ((end - HEADER) / RECORD >= COMPACT_EVENTS) compact();
+        } catch (IOException e) {
+            System.err.println("Play history is not saved: " + e.getMessage());
+            log = null;
+        }
+    }
+
+    private void force() {
+        if (delayedForce != null) {
+            delayedForce.cancel(false);
+            delayedForce = null;
+        }
+        if (log == null || unforced == 0) return;
+        long start = System.nanoTime();
+        log.putLong(END_OFFSET, end);
+        log.force();
+        unforced = 0;
+        forceTimer.recordSince(start);
+    }
+
+    /** Saves the counters together with the log position they cover, then starts the log over. */
+    private void compact() {
+        if (log == null) return;
+        force();
+        Path tmp = statsFile.resolveSibling(statsFile.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(STATS_MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(generation);
+                out.writeLong(end);
+                counters.write(out);
+            }
+            try {
+                Files.move(tmp, statsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, statsFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            reset(generation + 1);
+        } catch (IOException e) {
+            System.err.println("Failed to save play statistics " + statsFile + ": " + e.getMessage());
+        }
+    }
+
+    /** Empties the log under a new generation; the file keeps its size and is written over from the start. */
+    private void reset(long newGeneration) {
+        // zero what was written, so a crash cannot bring back records of the old generation
+        for (int pos = HEADER; pos + RECORD <= end; pos += RECORD) log.putLong(pos + 8, 0);
+        generation = newGeneration;
+        end = HEADER;
+        log.putInt(0, LOG_MAGIC).putInt(4, VERSION).putLong(8, generation).putLong(END_OFFSET, end);
+        log.force();
+    }
+
+    private void map(long size) throws IOException {
+        log = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /** Open-addressing map from track key to counters, in parallel primitive arrays. */
+    private static final class Counters {
+        private long[] keys = new long[1024];
+        private int[] plays = new int[1024];
+        private int[] skips = new int[1024];
+        private long[] last = new long[1024];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            keys = new long[1024];
+            plays = new int[1024];
+            skips = new int[1024];
+            last = new long[1024];
+            size = 0;
+        }
+
+        void add(long key, long time, int kind) {
+            int slot = slot(key);
+            if (kind == PLAYED) {
+                plays[slot]++;
+                last[slot] = Math.max(last[slot], time);
+            } else {
+                skips[slot]++;
+            }
+        }
+
+        void load(long key, int playCount, int skipCount, long lastPlayed) {
+            int slot = slot(key);
+            plays[slot] = playCount;
+            skips[slot] = skipCount;
+            last[slot] = lastPlayed;
+        }
+
+        int plays(long key) {
+            int mask = keys.length - 1;
+            for (int i = (int) key & mask; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) return plays[i];
+            }
+            return 0;
+        }
+
+        /**
+         * The {@code n} played tracks with the most plays (ties: latest first) or, unless {@code byPlays},
+         * the latest plays; greatest first. One pass with a min-heap of slots, nothing allocated per track.
+         */
+        List<Stat> top(int n, boolean byPlays) {
+            int[] heap = new int[n];
+            int size = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == 0 || plays[i] == 0) continue;
+                if (size < n) {
+                    heap[size] = i;
+                    for (int c = size++; c > 0 && greater(heap[(c - 1) / 2], heap[c], byPlays); c = (c - 1) / 2) swap(heap, c, (c - 1) / 2);
+                } else if (n > 0 && greater(i, heap[0], byPlays)) {
+                    heap[0] = i;
+                    siftDown(heap, size, byPlays);
+                }
+            }
+            Stat[] out = new Stat[size];
+            // popping the smallest each time fills the result from the back
+            while (size > 0) {
+                int slot = heap[0];
+                out[size - 1] = new Stat(keys[slot], plays[slot], skips[slot], last[slot]);
+                heap[0] = heap[--size];
+                siftDown(heap, size, byPlays);
+            }
+            return List.of(out);
+        }
+
+        private boolean greater(int a, int b, boolean byPlays) {
+            if (byPlays && plays[a] != plays[b]) return plays[a] > plays[b];
+            return last[a] > last[b];
+        }
+
+        private void siftDown(int[] heap, int size, boolean byPlays) {
+            for (int p = 0; ; ) {
+                int c = 2 * p + 1;
+                if (c >= size) return;
+                if (c + 1 < size && greater(heap[c], heap[c + 1], byPlays)) c++;
+                if (!greater(heap[p], heap[c], byPlays)) return;
+                swap(heap, p, c);
+                p = c;
+            }
+        }
+
+        private static void swap(int[] a, int i, int j) {
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == 0) continue;
+                out.writeLong(keys[i]);
+                out.writeInt(plays[i]);
+                out.writeInt(skips[i]);
+                out.writeLong(last[i]);
+            }
+        }
+
+        private int slot(long key) {
+            if (size * 2 >= keys.length) grow();
+            int mask = keys.length - 1;
+            int i = (int) key & mask;
+            while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+            if (keys[i] == 0) {
+                keys[i] = key;
+                size++;
+            }
+            return i;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldPlays = plays;
+            int[] oldSkips = skips;
+            long[] oldLast = last;
+            int capacity = oldKeys.length * 2;
+            keys = new long[capacity];
+            plays = new int[capacity];
+            skips = new int[capacity];
+            last = new long[capacity];
+            int mask = capacity - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == 0) continue;
+                int i = (int) oldKeys[j] & mask;
+                while (keys[i] != 0) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                plays[i] = oldPlays[j];
+                skips[i] = oldSkips[j];
+                last[i] = oldLast[j];
+            }
+        }
+    }
+}
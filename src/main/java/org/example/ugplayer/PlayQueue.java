@@ -0,0 +1,326 @@
+package org.example.ugplayer;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Decides what plays next. Tracks are {@link TrackStore} ids, which stay valid while rows shift under
+ * inserts and deletes, and all state lives in int arrays, so a million queued tracks cost a few
+ * megabytes and every step is O(1):
+ * <ul>
+ * <li>Up Next is a ring deque: {@link #enqueue} adds to its end, {@link #playNext} to its front. It
+ * plays before anything else.</li>
+ * <li>Shuffle deals from a deck of the tracks not yet played this round, one Fisher–Yates swap per
+ * draw, so nothing repeats until every track has played. Tracks added meanwhile join the deck and
+ * deleted ones leave it.</li>
+ * <li>Without shuffle, playback follows library order from the track the queue last moved to.</li>
+ * <li>History is a ring of the last {@code HISTORY} tracks that actually played. Previous walks back
+ * through it, and Next walks forward again before anything new is picked.</li>
+ * </ul>
+ * Deleted tracks still sitting in Up Next or the history are skipped when reached. Must be used from
+ * the FX thread.
+ */
+final class PlayQueue implements TrackStore.Listener {
+
+    enum Repeat { OFF, ALL, ONE }
+
+    private static final int HISTORY = 1000;
+
+    private final TrackStore tracks;
+    private final RandomGenerator random;
+    private Repeat repeat = Repeat.ALL;
+    private boolean shuffle;
+
+    // Up Next: upNext[(head + i) & (upNext.length - 1)] for i < upNextSize
+    private int[] upNext = new int[16];
+    private int head;
+    private int upNextSize;
+    private int lastQueued = -1;
+
+    // shuffle deck: deck[0..dealable) is still to play; deckSlot[id] is the id's slot + 1, 0 if unseen, -1 if played
+    private int[] deck = new int[0];
+    private int dealable;
+    private int[] deckSlot = new int[0];
+    private int drawn = -1; // dealt early by a peek, handed out by the next move
+
+    // history: history[(historyStart + i) % HISTORY] for i < historySize; historyPos is the current entry
+    private final int[] history = new int[HISTORY];
+    private int historyStart;
+    private int historySize;
+    private int historyPos = -1;
+
+    private int current = -1;
+    // library order continues after the cursor; its row is remembered in case it gets deleted
+    private int cursor = -1;
+    private int cursorRow;
+
+    PlayQueue(TrackStore tracks, RandomGenerator random) {
+        this.tracks = tracks;
+        this.random = random;
+        tracks.addListener(this);
+    }
+
+    Repeat repeat() {
+        return repeat;
+    }
+
+    void setRepeat(Repeat repeat) {
+        this.repeat = repeat;
+    }
+
+    boolean isShuffle() {
+        return shuffle;
+    }
+
+    /** Turning shuffle on starts a new round without the current track; turning it off continues in library order from it. */
+    void setShuffle(boolean on) {
+        if (on == shuffle) return;
+        shuffle = on;
+        drawn = -1;
+        if (on) {
+            deal();
+        } else {
+            deck = new int[0];
+            deckSlot = new int[0];
+            dealable = 0;
+            moveCursor(current);
+        }
+    }
+
+    // === Up Next ===
+
+    void enqueue(int id) {
+        if (upNextSize == upNext.length) growUpNext();
+        upNext[(head + upNextSize) & (upNext.length - 1)] = id;
+        upNextSize++;
+    }
+
+    void playNext(int id) {
+        if (upNextSize == upNext.length) growUpNext();
+        head = (head - 1) & (upNext.length - 1);
+        upNext[head] = id;
+        upNextSize++;
+    }
+
+    int upNextSize() {
+        return upNextSize;
+    }
+
+    void clearUpNext() {
+        head = 0;
+        upNextSize = 0;
+    }
+
+    private void growUpNext() {
+        int[] grown = new int[upNext.length * 2];
+        int firstPart = Math.min(upNextSize, upNext.length - head);
+        System.arraycopy(upNext, head, grown, 0, firstPart);
+        System.arraycopy(upNext, 0, grown, firstPart, upNextSize - firstPart);
+        upNext = grown;
+        head = 0;
+    }
+
+    // === moving ===
+
+    /**
+     * Records that {@code id} started playing, however it was chosen: it becomes the newest history
+     * entry (unless Previous/Next just moved there), counts as played for shuffle, and library order
+     * continues after it unless it came from Up Next.
+     */
+    void played(int id) {
+        current = id;
+        if (shuffle) {
+            take(id);
+            if (drawn == id) drawn = -1;
+        }
+        if (id != lastQueued) moveCursor(id);
+        lastQueued = -1;
+        if (historyPos >= 0 && historyAt(historyPos) == id) return;
+        historySize = historyPos + 1; // picking something new drops what Previous had stepped back over
+        if (historySize == HISTORY) {
+            historyStart = (historyStart + 1) % HISTORY;
+            historySize--;
+        }
+        history[(historyStart + historySize) % HISTORY] = id;
+        historyPos = historySize++;
+    }
+
+    /**
+     * Moves on and returns the track to play next, or -1 at the end with repeat off. {@code ended} is
+     * true when the current track finished by itself, where repeat-one plays it again; a skip moves on.
+     */
+    int next(boolean ended) {
+        return forward(ended, true);
+    }
+
+    /** What {@link #next} would return, without moving; for pre-rolling players. */
+    int peekNext(boolean ended) {
+        return forward(ended, false);
+    }
+
+    /** Moves back through what played, then before it in library order; -1 if there is nothing before. */
+    int previous() {
+        return back(true);
+    }
+
+    int peekPrevious() {
+        return back(false);
+    }
+
+    private int forward(boolean ended, boolean move) {
+        if (ended && repeat == Repeat.ONE && tracks.contains(current)) return current;
+        for (int p = historyPos + 1; p < historySize; p++) {
+            int id = historyAt(p);
+            if (!tracks.contains(id)) continue;
+            if (move) {
+                historyPos = p;
+                moveCursor(id);
+            }
+            return id;
+        }
+        while (upNextSize > 0) {
+            int id = upNext[head];
+            boolean alive = tracks.contains(id);
+            if (move || !alive) {
+                head = (head + 1) & (upNext.length - 1);
+                upNextSize--;
+            }
+            if (alive) {
+                if (move) lastQueued = id;
+                return id;
+            }
+        }
+        if (tracks.isEmpty()) return -1;
+        if (shuffle) {
+            if (drawn < 0 || !tracks.contains(drawn)) drawn = draw();
+            int id = drawn;
+            if (move) drawn = -1;
+            return id;
+        }
+        // a deleted cursor's successor has already moved up into its row
+        int row = tracks.contains(cursor) ? cursorRow() + 1 : cursorRow;
+        if (row >= tracks.size()) {
+            if (repeat == Repeat.OFF) return -1;
+            row = 0;
+        }
+        int id = tracks.idAt(row);
+        if (move) moveCursor(id);
+        return id;
+    }
+
+    private int back(boolean move) {
+        for (int p = historyPos - 1; p >= 0; p--) {
+            int id = historyAt(p);
+            if (!tracks.contains(id)) continue;
+            if (move) {
+                historyPos = p;
+                moveCursor(id);
+            }
+            return id;
+        }
+        if (shuffle || tracks.isEmpty()) return -1;
+        int row = (tracks.contains(cursor) ? cursorRow() : cursorRow) - 1;
+        if (row < 0) {
+            if (repeat == Repeat.OFF) return -1;
+            row = tracks.size() - 1;
+        }
+        int id = tracks.idAt(Math.min(row, tracks.size() - 1));
+        if (move) moveCursor(id);
+        return id;
+    }
+
+    private int historyAt(int p) {
+        return history[(historyStart + p) % HISTORY];
+    }
+
+    private void moveCursor(int id) {
+        cursor = id;
+        int row = tracks.rowOf(id);
+        if (row >= 0) cursorRow = row;
+    }
+
+    private int cursorRow() {
+        cursorRow = tracks.rowOf(cursor);
+        return cursorRow;
+    }
+
+    // === shuffle deck ===
+
+    /** Starts a round with every track but the current one. */
+    private void deal() {
+        int n = tracks.size();
+        if (deck.length < n) deck = new int[n];
+        Arrays.fill(deckSlot, 0);
+        dealable = 0;
+        for (int row = 0; row < n; row++) {
+            int id = tracks.idAt(row);
+            if (id != current || n == 1) add(id);
+            else markPlayed(id);
+        }
+    }
+
+    private int draw() {
+        if (dealable == 0) {
+            if (repeat == Repeat.OFF) return -1;
+            deal();
+            if (dealable == 0) return -1;
+        }
+        int id = deck[random.nextInt(dealable)];
+        take(id);
+        return id;
+    }
+
+    private void add(int id) {
+        if (id >= deckSlot.length) deckSlot = Arrays.copyOf(deckSlot, Math.max(id + 1, deckSlot.length * 2));
+        if (dealable == deck.length) deck = Arrays.copyOf(deck, Math.max(16, deck.length * 2));
+        deck[dealable] = id;
+        deckSlot[id] = ++dealable;
+    }
+
+    /** Takes {@code id} out of the deck by moving the last undealt track into its slot. */
+    private void take(int id) {
+        if (id < 0 || id >= deckSlot.length || deckSlot[id] <= 0) {
+            markPlayed(id);
+            return;
+        }
+        int slot = deckSlot[id] - 1;
+        int last = deck[--dealable];
+        deck[slot] = last;
+        deckSlot[last] = slot + 1;
+        deckSlot[id] = -1;
+    }
+
+    private void markPlayed(int id) {
+        if (id < 0) return;
+        if (id >= deckSlot.length) deckSlot = Arrays.copyOf(deckSlot, Math.max(id + 1, deckSlot.length * 2));
+        deckSlot[id] = -1;
+    }
+
+    // === TrackStore.Listener ===
+
+    @Override
+    public void changed(int id) {
+        if (shuffle && (id >= deckSlot.length || deckSlot[id] == 0)) add(id);
+        if (tracks.contains(cursor)) cursorRow();
+    }
+
+    @Override
+    public void removed(int id) {
+        if (shuffle) take(id);
+        if (drawn == id) drawn = -1;
+        if (id != cursor && tracks.contains(cursor)) cursorRow();
+    }
+
+    @Override
+    public void cleared() {
+        clearUpNext();
+        historyStart = 0;
+        historySize = 0;
+        historyPos = -1;
+        current = -1;
+        cursor = -1;
+        cursorRow = 0;
+        drawn = -1;
+        if (shuffle) deal();
+    }
+}
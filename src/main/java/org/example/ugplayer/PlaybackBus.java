@@ -0,0 +1,245 @@
+package org.example.ugplayer;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.MapChangeListener;
+import javafx.scene.image.Image;
+import javafx.scene.media.MediaPlayer;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The one place that holds the current {@link MediaPlayer} and tells views what it is doing. Views
+ * subscribe a {@link Listener} instead of attaching their own listeners to the player or its
+ * {@code Media}; the bus keeps exactly one status and one metadata listener on the current player and
+ * moves them when the track changes.
+ *
+ * <p>Position updates are published at a fixed rate ({@code -Dmuzik.positionHz}, default 4) while
+ * playing, rather than on every tick of the player, and once more on each status change or seek.
+ * Playback commands from views go through {@link #play()}, {@link #pause()}, {@link #next()} and
+ * {@link #previous()} to the {@link Controls} of the main window. Must be used from the FX thread.
+ */
+final class PlaybackBus {
+
+    /** Shown track; {@code row} and {@code count} are its position in the library. */
+    record Track(int id, Path path, String title, String artist, String album, int row, int count) {
+    }
+
+    /** Playback events. A new subscriber first receives the current state. */
+    interface Listener {
+        /** A new track was loaded, or {@code null} when nothing is loaded. */
+        default void track(Track track) {
+        }
+
+        default void status(MediaPlayer.Status status) {
+        }
+
+        /** {@code total} may be unknown until the media is ready. */
+        default void position(Duration current, Duration total) {
+        }
+
+        /** Metadata found by the player in the current media. */
+        default void metadata(String key, Object value) {
+        }
+
+        /** Small cover thumbnail of the current track, or {@code null} if it has none (yet). */
+        default void cover(Image thumbnail) {
+        }
+    }
+
+    /** What views can ask the main window to do. */
+    interface Controls {
+        void play();
+
+        void pause();
+
+        void next();
+
+        void previous();
+    }
+
+    /** Ends a subscription. */
+    interface Subscription {
+        void cancel();
+    }
+
+    private Listener[] listeners = new Listener[0];
+    private Controls controls;
+
+    private MediaPlayer player;
+    private Track track;
+    private Image cover;
+    private final Map<String, Object> metadata = new HashMap<>();
+    private final Timeline ticker = new Timeline();
+
+    private final ChangeListener<MediaPlayer.Status> statusListener = (obs, old, now) -> {
+        for (Listener l : listeners) l.status(now);
+        publishPosition();
+        if (now == MediaPlayer.Status.PLAYING) ticker.play();
+        else ticker.stop();
+    };
+    private final MapChangeListener<String, Object> metadataListener = change -> {
+        if (!change.wasAdded() || change.getValueAdded() == null) return;
+        if (Platform.isFxApplicationThread()) publishMetadata(change.getKey(), change.getValueAdded());
+        else {
+            MediaPlayer source = player;
+            Platform.runLater(() -> {
+                if (player == source) publishMetadata(change.getKey(), change.getValueAdded());
+            });
+        }
+    };
+
+    PlaybackBus(int positionHz) {
+        ticker.getKeyFrames().add(new KeyFrame(Duration.millis(1000.0 / Math.max(1, positionHz)), e -> publishPosition()));
+        ticker.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    void setControls(Controls controls) {
+        this.controls = controls;
+    }
+
+    // === player ===
+
+    MediaPlayer player() {
+        return player;
+    }
+
+    /** The track shown, or {@code null}; still the old one after {@link #release()} until the next load. */
+    Track track() {
+        return track;
+    }
+
+    /** Detaches from the current player and hands it back; the caller decides whether to keep or dispose it. */
+    MediaPlayer release() {
+        MediaPlayer old = player;
+        if (old != null) {
+            old.statusProperty().removeListener(statusListener);
+            old.getMedia().getMetadata().removeListener(metadataListener);
+        }
+        ticker.stop();
+        player = null;
+        return old;
+    }
+
+    /** Makes {@code next} the current player of {@code shown}; both may be {@code null} when nothing is loaded. */
+    void load(Track shown, MediaPlayer next) {
+        if (player != null) release();
+        player = next;
+        track = shown;
+        cover = null;
+        metadata.clear();
+        for (Listener l : listeners) l.track(shown);
+        if (next == null) return;
+
+        next.statusProperty().addListener(statusListener);
+        next.getMedia().getMetadata().addListener(metadataListener);
+        // a pre-rolled player already has its metadata, so the listener above will not fire for it
+        next.getMedia().getMetadata().forEach(this::publishMetadata);
+        for (Listener l : listeners) l.status(next.getStatus());
+        publishPosition();
+        if (next.getStatus() == MediaPlayer.Status.PLAYING) ticker.play();
+    }
+
+    void publishCover(Image thumbnail) {
+        cover = thumbnail;
+        for (Listener l : listeners) l.cover(thumbnail);
+    }
+
+    // === commands from views ===
+
+    void play() {
+        if (controls != null) controls.play();
+    }
+
+    void pause() {
+        if (controls != null) controls.pause();
+    }
+
+    void togglePlay() {
+        if (player != null && player.getStatus() == MediaPlayer.Status.PLAYING) pause();
+        else play();
+    }
+
+    void next() {
+        if (controls != null) controls.next();
+    }
+
+    void previous() {
+        if (controls != null) controls.previous();
+    }
+
+    /** Seeks to {@code ratio} (0..1) of the track, if its length is known. */
+    void seek(double ratio) {
+        if (player == null) return;
+        Duration total = player.getTotalDuration();
+        if (total == null || total.isUnknown()) return;
+        player.seek(total.multiply(Math.min(Math.max(ratio, 0), 1)));
+        publishPosition();
+    }
+
+    // === subscriptions ===
+
+    /** Adds {@code l} and replays the current state to it. */
+    Subscription subscribe(Listener l) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = l;
+        l.track(track);
+        if (player != null) {
+            metadata.forEach(l::metadata);
+            l.status(player.getStatus());
+            l.position(player.getCurrentTime(), player.getTotalDuration());
+        }
+        l.cover(cover);
+        return () -> unsubscribe(l);
+    }
+
+    /** Keeps {@code l} subscribed only while {@code window} is showing, so a hidden view costs nothing. */
+    void subscribeWhileShowing(Window window, Listener l) {
+        Subscription[] current = new Subscription[1];
+        if (window.isShowing()) current[0] = subscribe(l);
+        window.showingProperty().addListener((obs, was, showing) -> {
+            if (showing && current[0] == null) {
+                current[0] = subscribe(l);
+            } else if (!showing && current[0] != null) {
+                current[0].cancel();
+                current[0] = null;
+            }
+        });
+    }
+
+    int listenerCount() {
+        return listeners.length;
+    }
+
+    private void unsubscribe(Listener l) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == l) {
+                Listener[] next = new Listener[listeners.length - 1];
+                System.arraycopy(listeners, 0, next, 0, i);
+                System.arraycopy(listeners, i + 1, next, i, next.length - i);
+                listeners = next;
+                return;
+            }
+        }
+    }
+
+    private void publishMetadata(String key, Object value) {
+        if (value == null) return;
+        metadata.put(key, value);
+        for (Listener l : listeners) l.metadata(key, value);
+    }
+
+    private void publishPosition() {
+        if (player == null) return;
+        Duration current = player.getCurrentTime();
+        Duration total = player.getTotalDuration();
+        for (Listener l : listeners) l.position(current, total);
+    }
+}
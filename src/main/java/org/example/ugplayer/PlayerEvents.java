@@ -0,0 +1,90 @@
+package org.example.ugplayer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder events for what users notice as slowness. Each event's duration is the operation
+ * itself; they show up under "Muzik" in JDK Mission Control next to GC and thread activity.
+ */
+final class PlayerEvents {
+
+    private PlayerEvents() {
+    }
+
+    @Name("muzik.ScanFile")
+    @Label("Scan File")
+    @Category({"Muzik", "Library"})
+    @Description("Reading one file's tags during a library scan")
+    static class ScanFile extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("From Index")
+        boolean fromIndex;
+    }
+
+    @Name("muzik.TrackLoad")
+    @Label("Track Load")
+    @Category({"Muzik", "Playback"})
+    @Description("From loading a track until its player is READY")
+    static class TrackLoad extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Pre-rolled")
+        boolean preRolled;
+    }
+
+    @Name("muzik.FirstAudio")
+    @Label("Time to First Audio")
+    @Category({"Muzik", "Playback"})
+    @Description("From pressing play until the player is PLAYING")
+    static class FirstAudio extends Event {
+        @Label("Path")
+        String path;
+    }
+
+    @Name("muzik.ImportCopy")
+    @Label("Import Copy")
+    @Category({"Muzik", "Library"})
+    @Description("Copying one file into the songs folder")
+    static class ImportCopy extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("muzik.Delete")
+    @Label("Delete Songs")
+    @Category({"Muzik", "Library"})
+    @Description("From confirming a delete until every file is gone")
+    static class Delete extends Event {
+        @Label("Files")
+        int files;
+
+        @Label("Failed")
+        int failed;
+    }
+
+    @Name("muzik.FxStall")
+    @Label("FX Thread Stall")
+    @Category({"Muzik", "UI"})
+    @Description("The FX application thread did not run queued work for longer than the stall threshold")
+    static class FxStall extends Event {
+        @Label("Stall")
+        @Timespan(Timespan.MILLISECONDS)
+        long millis;
+
+        @Label("FX Thread Stack")
+        String stack;
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.ugplayer;
+
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small set of idle {@link MediaPlayer}s around the current position: players prepared for the
+ * neighbouring tracks and the player of the track just left, so skipping back and forth does not
+ * create a new {@code Media}/{@code MediaPlayer} each time. Holds at most {@code capacity} idle
+ * players; the least recently added one is disposed first.
+ *
+ * <p>All players are created and disposed here, which is what the per-minute counter reports.
+ * Must be used from the FX thread.
+ */
+final class PlayerPool {
+
+    private final int capacity;
+    private final Map<Integer, MediaPlayer> idle = new LinkedHashMap<>();
+    private double volume = 0.5;
+
+    // === created/disposed counters: totals and the current one-minute window ===
+    private long created;
+    private long disposed;
+    private int windowCreated;
+    private int windowDisposed;
+
+    PlayerPool(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /** Creates a player for {@code file}; prefer {@link #take(int)} first. */
+    MediaPlayer create(Path file) {
+        MediaPlayer player = new MediaPlayer(new Media(file.toUri().toString()));
+        player.setVolume(volume);
+        count(1, 0);
+        return player;
+    }
+
+    /** Removes and returns the idle player of track {@code id}, or {@code null}. */
+    MediaPlayer take(int id) {
+        MediaPlayer player = idle.remove(id);
+        if (player == null) return null;
+        player.setOnError(null);
+        if (player.getStatus() == MediaPlayer.Status.HALTED) {
+            dispose(player);
+            return null;
+        }
+        return player;
+    }
+
+    boolean contains(int id) {
+        return idle.containsKey(id);
+    }
+
+    /** Makes sure an idle player for {@code id} exists, so its media becomes READY in the background. */
+    void prepare(int id, Path file) {
+        if (idle.containsKey(id)) return;
+        try {
+            MediaPlayer player = create(file);
+            player.setOnError(() -> {
+                System.err.println("Cannot prepare " + file.getFileName() + ": " + player.getError());
+                if (idle.remove(id, player)) dispose(player);
+            });
+            park(id, player);
+        } catch (Exception e) {
+            System.err.println("Cannot prepare " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    /** Keeps a player that is no longer current for a quick way back; it is rewound, not disposed. */
+    void recycle(int id, MediaPlayer player) {
+        if (player.getStatus() == MediaPlayer.Status.HALTED || idle.containsKey(id)) {
+            dispose(player);
+            return;
+        }
+        player.stop();
+        player.setOnPlaying(null);
+        player.setOnPaused(null);
+        player.setOnEndOfMedia(null);
+        park(id, player);
+    }
+
+    /** Disposes the idle player of track {@code id}, if any, so its file is no longer held open. */
+    void evict(int id) {
+        MediaPlayer player = idle.remove(id);
+        if (player != null) dispose(player);
+    }
+
+    /** Disposes idle players of tracks other than {@code keep}. */
+    void retainOnly(int... keep) {
+        Iterator<Map.Entry<Integer, MediaPlayer>> it = idle.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, MediaPlayer> e = it.next();
+            boolean wanted = false;
+            for (int id : keep) wanted |= id == e.getKey();
+            if (!wanted) {
+                it.remove();
+                dispose(e.getValue());
+            }
+        }
+    }
+
+    void setVolume(double volume) {
+        this.volume = volume;
+        for (MediaPlayer player : idle.values()) player.setVolume(volume);
+    }
+
+    void dispose(MediaPlayer player) {
+        player.dispose();
+        count(0, 1);
+    }
+
+    void clear() {
+        retainOnly();
+    }
+
+    int idleCount() {
+        return idle.size();
+    }
+
+    long created() {
+        return created;
+    }
+
+    long disposed() {
+        return disposed;
+    }
+
+    private void park(int id, MediaPlayer player) {
+        idle.put(id, player);
+        Iterator<MediaPlayer> it = idle.values().iterator();
+        while (idle.size() > capacity && it.hasNext()) {
+            MediaPlayer eldest = it.next();
+            if (eldest == player) continue;
+            it.remove();
+            dispose(eldest);
+        }
+    }
+
+    /** Logs and resets the counts of the minute that just ended, if anything happened in it. Call once a minute. */
+    void rollMinute() {
+        if (windowCreated > 0 || windowDisposed > 0) {
+            System.out.println("Media players in the last minute: " + windowCreated + " created, "
+                    + windowDisposed + " disposed (" + created + " / " + disposed + " total, " + idle.size() + " idle)");
+        }
+        windowCreated = 0;
+        windowDisposed = 0;
+    }
+
+    private void count(int newPlayers, int disposedPlayers) {
+        created += newPlayers;
+        disposed += disposedPlayers;
+        windowCreated += newPlayers;
+        windowDisposed += disposedPlayers;
+    }
+}
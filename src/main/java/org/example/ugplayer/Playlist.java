@@ -0,0 +1,411 @@
+package org.example.ugplayer;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * A playlist saved in its own file, {@code ~/.muzik/playlists/<name>.muzpl}. Entries are paths plus the
+ * title to show, and are matched against the library only when asked: {@link #idAt(int)} looks a row
+ * up when the list displays or plays it, so opening 100k entries never touches the library for all
+ * of them. Loading streams the file in chunks of {@code CHUNK}, so the first rows show right away.
+ *
+ * <p>Saving is incremental: added entries are appended, removed ones are marked deleted in place, and
+ * besides that only the header is rewritten. Once deleted records outnumber live ones the file is
+ * rewritten without them.
+ *
+ * <p>File layout (big-endian): {@code "MZPL"}, version, live count, deleted count, then per entry a
+ * state byte (1 live, 0 deleted), the path and the title. Strings are a length (-1 for null) plus
+ * UTF-8 bytes. A record cut short by a crash is dropped on load.
+ *
+ * <p>The model is used from the FX thread; file work runs in order on one background thread.
+ */
+final class Playlist {
+
+    /** One entry: the track's file, and the title shown while the library does not have it. */
+    record Entry(Path path, String title) {
+    }
+
+    static final String EXTENSION = ".muzpl";
+    static final int CHUNK = 500;
+    private static final int MAGIC = 0x4D5A504C; // "MZPL"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 0;
+
+    static final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "playlist-io");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Path file;
+    private final TrackStore tracks;
+    private final ObservableList<Entry> entries = FXCollections.observableArrayList();
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    // per entry: its record's file offset, and its track id + 1 once looked up (0 = not yet)
+    private long[] offsets = new long[16];
+    private int[] ids = new int[16];
+    private long end = HEADER;
+    private int deleted;
+
+    private Playlist(Path file, TrackStore tracks) {
+        this.file = file;
+        this.tracks = tracks;
+    }
+
+    static Path folder() {
+        return Path.of(System.getProperty("user.home"), ".muzik", "playlists");
+    }
+
+    /** Saved playlists, by file name. */
+    static List<Path> saved() {
+        try (Stream<Path> files = Files.list(folder())) {
+            return files.filter(p -> p.getFileName().toString().endsWith(EXTENSION)).sorted().toList();
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    /** Playlist file for {@code name} that does not exist yet ("name", "name 2", …). */
+    static Path newFile(String name) {
+        String base = name.replaceAll("[\\\\/:*?\"<>|]", "_").strip();
+        if (base.isEmpty()) base = "Playlist";
+        Path file = folder().resolve(base + EXTENSION);
+        for (int n = 2; Files.exists(file); n++) file = folder().resolve(base + " " + n + EXTENSION);
+        return file;
+    }
+
+    /** Starts an empty playlist in {@code file}. */
+    static Playlist create(Path file, TrackStore tracks) {
+        Playlist playlist = new Playlist(file, tracks);
+        io.execute(() -> {
+            try {
+                Files.createDirectories(file.getParent());
+                try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    ch.write(header(0, 0));
+                }
+                Platform.runLater(() -> playlist.loaded.complete(null));
+            } catch (IOException e) {
+                System.err.println("Cannot create playlist " + file + ": " + e.getMessage());
+                Platform.runLater(() -> playlist.loaded.completeExceptionally(e));
+            }
+        });
+        return playlist;
+    }
+
+    /** Opens {@code file}; entries arrive on the FX thread chunk by chunk, see {@link #loaded()}. */
+    static Playlist open(Path file, TrackStore tracks) {
+        Playlist playlist = new Playlist(file, tracks);
+        io.execute(playlist::load);
+        return playlist;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    String name() {
+        String n = file.getFileName().toString();
+        return n.substring(0, n.length() - EXTENSION.length());
+    }
+
+    /** Live view of the entries, for a {@code ListView}. */
+    ObservableList<Entry> entries() {
+        return entries;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /** Completes on the FX thread once every entry is in; edits made before that wait for it. */
+    CompletableFuture<Void> loaded() {
+        return loaded;
+    }
+
+    /** Library id of entry {@code i}, or -1 if the library has no such file (any more). */
+    int idAt(int i) {
+        int cached = ids[i] - 1;
+        if (cached >= 0 && tracks.contains(cached)) return cached;
+        int id = tracks.find(entries.get(i).path());
+        ids[i] = id + 1;
+        return id;
+    }
+
+    /** Library ids from entry {@code from} on, leaving out entries the library does not have. */
+    int[] idsFrom(int from) {
+        int[] out = new int[entries.size() - from];
+        int n = 0;
+        for (int i = from; i < entries.size(); i++) {
+            int id = idAt(i);
+            if (id >= 0) out[n++] = id;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // === edits: the model changes at once, the file follows on the io thread ===
+
+    /** Appends {@code added} to the playlist and to its file. */
+    void add(List<Entry> added) {
+        if (!loaded.isDone()) {
+            loaded.thenRun(() -> add(added));
+            return;
+        }
+        if (added.isEmpty()) return;
+        int first = entries.size();
+        long at = end;
+        ByteBuffer records = encode(added, first, at);
+        Arrays.fill(ids, first, first + added.size(), 0);
+        end += records.remaining();
+        entries.addAll(added);
+        ByteBuffer head = header(entries.size(), deleted);
+        io.execute(() -> write(records, at, head));
+    }
+
+    /**
+     * Removes the entries at {@code indexes}, marking their records deleted. While the playlist is
+     * still loading, the entries themselves are remembered and removed once it is in.
+     */
+    void remove(int[] indexes) {
+        if (indexes.length == 0) return;
+        if (!loaded.isDone()) {
+            Set<Entry> doomed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int i : indexes) doomed.add(entries.get(i));
+            loaded.thenRun(() -> remove(indexesOf(doomed)));
+            return;
+        }
+        int[] sorted = indexes.clone();
+        Arrays.sort(sorted);
+        long[] marks = new long[sorted.length];
+        for (int k = sorted.length - 1; k >= 0; k--) {
+            int i = sorted[k];
+            marks[k] = offsets[i];
+            int tail = entries.size() - i - 1;
+            System.arraycopy(offsets, i + 1, offsets, i, tail);
+            System.arraycopy(ids, i + 1, ids, i, tail);
+            entries.remove(i);
+        }
+        deleted += sorted.length;
+        if (deleted > Math.max(CHUNK, entries.size())) {
+            compact();
+            return;
+        }
+        ByteBuffer head = header(entries.size(), deleted);
+        io.execute(() -> {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ByteBuffer mark = ByteBuffer.allocate(1);
+                for (long offset : marks) ch.write(mark.put(0, DELETED).rewind(), offset);
+                ch.write(head, 0);
+            } catch (IOException e) {
+                System.err.println("Failed to save playlist " + file + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private int[] indexesOf(Set<Entry> wanted) {
+        int[] out = new int[wanted.size()];
+        int n = 0;
+        for (int i = 0; i < entries.size() && n < out.length; i++) {
+            if (wanted.contains(entries.get(i))) out[n++] = i;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /** Rewrites the file with live records only. */
+    private void compact() {
+        List<Entry> live = List.copyOf(entries);
+        ByteBuffer records = encode(live, 0, HEADER);
+        end = HEADER + records.remaining();
+        deleted = 0;
+        ByteBuffer head = header(live.size(), 0);
+        io.execute(() -> {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    ch.write(head, 0);
+                    ch.write(records, HEADER);
+                }
+                try {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to compact playlist " + file + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /** Deletes the playlist's file. */
+    void delete() {
+        io.execute(() -> {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Cannot delete playlist " + file + ": " + e.getMessage());
+            }
+        });
+    }
+
+    // === file ===
+
+    /** Runs on the io thread. */
+    private void load() {
+        long start = System.nanoTime();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch), 1 << 16));
+            if (in.readInt() != MAGIC) throw new IOException("not a playlist");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("unsupported playlist version " + version);
+            int live = in.readInt();
+            int dead = in.readInt();
+
+            long pos = HEADER;
+            int liveSeen = 0;
+            int deadSeen = 0;
+            List<Entry> chunk = new ArrayList<>(CHUNK);
+            long[] chunkOffsets = new long[CHUNK];
+            while (true) {
+                long recordStart = pos;
+                Entry entry;
+                boolean isLive;
+                try {
+                    int state = in.read();
+                    if (state < 0) break;
+                    isLive = state == LIVE;
+                    byte[] path = readBytes(in);
+                    byte[] title = readBytes(in);
+                    pos += 1 + 4 + path.length + 4 + (title != null ? title.length : 0);
+                    entry = new Entry(Path.of(new String(path, StandardCharsets.UTF_8)),
+                            title != null ? new String(title, StandardCharsets.UTF_8) : null);
+                } catch (EOFException e) {
+                    // an append that did not finish: cut it off
+                    System.err.println("Dropping incomplete record at the end of playlist " + file);
+                    ch.truncate(recordStart);
+                    pos = recordStart;
+                    break;
+                }
+                if (!isLive) {
+                    deadSeen++;
+                    continue;
+                }
+                chunkOffsets[chunk.size()] = recordStart;
+                chunk.add(entry);
+                liveSeen++;
+                if (chunk.size() == CHUNK) {
+                    deliver(chunk, chunkOffsets);
+                    chunk = new ArrayList<>(CHUNK);
+                    chunkOffsets = new long[CHUNK];
+                }
+            }
+            deliver(chunk, chunkOffsets);
+            // counts are patched after the records they describe, so after a crash they may lag
+            if (live != liveSeen || dead != deadSeen) ch.write(header(liveSeen, deadSeen), 0);
+
+            long end = pos;
+            int finalDeleted = deadSeen;
+            int count = liveSeen;
+            Platform.runLater(() -> {
+                this.end = end;
+                this.deleted = finalDeleted;
+                loaded.complete(null);
+                System.out.printf("Playlist %s: %d entries in %d ms%n", name(), count, (System.nanoTime() - start) / 1_000_000);
+            });
+        } catch (Exception e) {
+            System.err.println("Cannot open playlist " + file + ": " + e.getMessage());
+            Platform.runLater(() -> loaded.completeExceptionally(e));
+        }
+    }
+
+    private void deliver(List<Entry> chunk, long[] chunkOffsets) {
+        if (chunk.isEmpty()) return;
+        Platform.runLater(() -> {
+            int at = entries.size();
+            ensureCapacity(at + chunk.size());
+            System.arraycopy(chunkOffsets, 0, offsets, at, chunk.size());
+            entries.addAll(chunk);
+        });
+    }
+
+    private void write(ByteBuffer records, long at, ByteBuffer head) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            while (records.hasRemaining()) ch.write(records, at + records.position());
+            ch.write(head, 0);
+        } catch (IOException e) {
+            System.err.println("Failed to save playlist " + file + ": " + e.getMessage());
+        }
+    }
+
+    /** Encodes {@code list} as records starting at file offset {@code at}, noting their offsets from entry {@code first} on. */
+    private ByteBuffer encode(List<Entry> list, int first, long at) {
+        ensureCapacity(first + list.size());
+        byte[][] paths = new byte[list.size()][];
+        byte[][] titles = new byte[list.size()][];
+        int length = 0;
+        for (int i = 0; i < list.size(); i++) {
+            Entry e = list.get(i);
+            paths[i] = e.path().toString().getBytes(StandardCharsets.UTF_8);
+            titles[i] = e.title() != null ? e.title().getBytes(StandardCharsets.UTF_8) : null;
+            length += 1 + 4 + paths[i].length + 4 + (titles[i] != null ? titles[i].length : 0);
+        }
+        ByteBuffer out = ByteBuffer.allocate(length);
+        for (int i = 0; i < list.size(); i++) {
+            offsets[first + i] = at + out.position();
+            out.put(LIVE);
+            out.putInt(paths[i].length).put(paths[i]);
+            if (titles[i] == null) {
+                out.putInt(-1);
+            } else {
+                out.putInt(titles[i].length).put(titles[i]);
+            }
+        }
+        return out.flip();
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= offsets.length) return;
+        int capacity = Math.max(n, offsets.length * 2);
+        offsets = Arrays.copyOf(offsets, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+    }
+
+    private static ByteBuffer header(int live, int deleted) {
+        return ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).putInt(live).putInt(deleted).flip();
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.ugplayer;
+
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Window showing one playlist. Rows are matched against the library as they scroll into view; an
+ * entry the library does not have is shown greyed out with its saved title and skipped when playing.
+ * Double-click or Play starts playback at that row, with the rest of the playlist as Up Next.
+ */
+final class PlaylistWindow {
+
+    private final Stage stage = new Stage();
+    private final Playlist playlist;
+    private final TrackStore tracks;
+    private final ListView<Playlist.Entry> list = new ListView<>();
+    private final Label status = new Label();
+
+    /** {@code play} gets the ids to play, the first one right away. */
+    PlaylistWindow(Playlist playlist, TrackStore tracks, Window owner, Consumer<int[]> play) {
+        this.playlist = playlist;
+        this.tracks = tracks;
+
+        list.setItems(playlist.entries());
+        list.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        list.setCellFactory(v -> new EntryCell());
+        list.setOnMouseClicked(e -> {
+            if (e.getClickCount() == 2) playFrom(play);
+        });
+
+        Button playButton = new Button("▶ Play");
+        playButton.setOnAction(e -> playFrom(play));
+        Button removeButton = new Button("Remove");
+        removeButton.setOnAction(e -> playlist.remove(list.getSelectionModel().getSelectedIndices().stream()
+                .mapToInt(Integer::intValue).toArray()));
+        Button exportButton = new Button("Export M3U…");
+        exportButton.setOnAction(e -> export());
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox bar = new HBox(8, playButton, removeButton, spacer, status, exportButton);
+        bar.setAlignment(Pos.CENTER_LEFT);
+        bar.setPadding(new Insets(8));
+
+        playlist.entries().addListener((ListChangeListener<Playlist.Entry>) c -> updateStatus());
+        playlist.loaded().whenComplete((v, error) -> Platform.runLater(this::updateStatus));
+        updateStatus();
+
+        BorderPane root = new BorderPane(list);
+        root.setBottom(bar);
+        stage.setTitle(playlist.name());
+        stage.initOwner(owner);
+        stage.setScene(new Scene(root, 420, 520));
+    }
+
+    Playlist playlist() {
+        return playlist;
+    }
+
+    void show() {
+        stage.show();
+        stage.toFront();
+    }
+
+    void setOnHidden(Runnable action) {
+        stage.setOnHidden(e -> action.run());
+    }
+
+    private void playFrom(Consumer<int[]> play) {
+        int from = Math.max(0, list.getSelectionModel().getSelectedIndex());
+        if (from >= playlist.size()) return;
+        int[] ids = playlist.idsFrom(from);
+        if (ids.length > 0) play.accept(ids);
+    }
+
+    private void updateStatus() {
+        String count = playlist.size() == 1 ? "1 song" : playlist.size() + " songs";
+        if (playlist.loaded().isCompletedExceptionally()) status.setText("Could not open playlist");
+        else status.setText(playlist.loaded().isDone() ? count : "Loading… " + count);
+    }
+
+    private void export() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Playlist");
+        chooser.setInitialFileName(playlist.name() + ".m3u8");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("M3U Playlists", "*.m3u8", "*.m3u"));
+        File file = chooser.showSaveDialog(stage);
+        if (file == null) return;
+        List<Playlist.Entry> snapshot = List.copyOf(playlist.entries());
+        Playlist.io.execute(() -> {
+            try {
+                M3u.write(file.toPath(), snapshot);
+            } catch (IOException e) {
+                e.printStackTrace();
+                Platform.runLater(() -> status.setText("Export failed: " + e.getMessage()));
+            }
+        });
+    }
+
+    /** Title and artist from the library, or the saved title greyed out if the library lacks the file. */
+    private final class EntryCell extends ListCell<Playlist.Entry> {
+        @Override
+        protected void updateItem(Playlist.Entry entry, boolean empty) {
+            super.updateItem(entry, empty);
+            if (empty || entry == null) {
+                setText(null);
+                setStyle("");
+                return;
+            }
+            int id = playlist.idAt(getIndex());
+            if (id >= 0) {
+                setText(tracks.title(id) + " — " + tracks.artist(id));
+                setStyle("");
+            } else {
+                setText(entry.title() != null ? entry.title() : entry.path().getFileName().toString());
+                setStyle("-fx-opacity: 0.5;");
+            }
+        }
+    }
+}
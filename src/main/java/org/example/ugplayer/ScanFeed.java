@@ -0,0 +1,172 @@
+package org.example.ugplayer;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Brings scan results into the {@link TrackStore} while the scan is still running. Worker threads
+ * only queue what they found; once per frame the FX thread applies everything that arrived since the
+ * last frame as a single list change, stopping after a time slice and leaving the rest for the next
+ * frame. A listed file shows up right away as a placeholder row titled by its file name and is
+ * filled in when its tags are read; a file that turns out to be unreadable is dropped again.
+ *
+ * <p>Records {@code scan.firstRow} (scan start until the first row is in the list) and
+ * {@code scan.fullList} (until every root started since then is complete) in {@link Metrics}.
+ * One feed serves one library generation; after {@link #close()} it ignores everything.
+ */
+final class ScanFeed implements LibraryScanner.Feed {
+
+    /** FX time per frame spent applying results; the rest of a 60 Hz frame is left for layout and paint. */
+    private static final long SLICE_NANOS = 6_000_000;
+    /** Placeholders are merged this many at a time, so a huge folder is spread over frames as well. */
+    private static final int LISTING_CHUNK = 1024;
+
+    private record Listed(List<Path> files) {
+    }
+
+    private record Unreadable(Path file) {
+    }
+
+    private record Finished(Runnable then) {
+    }
+
+    private final TrackStore tracks;
+    private final LibrarySearch search;
+    private final Predicate<Path> wanted;
+    private final Consumer<Path> remove;
+
+    // === filled by worker threads, drained on the FX thread in arrival order ===
+    private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private volatile boolean closed;
+
+    // === FX thread only ===
+    private int pendingRoots;
+    private long startNanos;
+    private long firstRowNanos;
+    private int frames;
+
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            applyFrame();
+        }
+    };
+
+    /**
+     * {@code wanted} filters out files of roots removed in the meantime; {@code remove} takes the
+     * placeholder of an unreadable file out of the library.
+     */
+    ScanFeed(TrackStore tracks, LibrarySearch search, Predicate<Path> wanted, Consumer<Path> remove) {
+        this.tracks = tracks;
+        this.search = search;
+        this.wanted = wanted;
+        this.remove = remove;
+    }
+
+    /** A root scan feeding into this starts now. FX thread. */
+    void started() {
+        if (pendingRoots++ > 0) return;
+        startNanos = System.nanoTime();
+        firstRowNanos = -1;
+        frames = 0;
+    }
+
+    @Override
+    public void listed(List<Path> files) {
+        for (int from = 0; from < files.size(); from += LISTING_CHUNK) {
+            offer(new Listed(files.subList(from, Math.min(files.size(), from + LISTING_CHUNK))));
+        }
+    }
+
+    @Override
+    public void read(Path file, TrackInfo info) {
+        offer(info != null ? info : new Unreadable(file));
+    }
+
+    /**
+     * Ends a root scan: {@code then} runs on the FX thread once everything queued before it is in
+     * the list. Any thread.
+     */
+    void finished(Runnable then) {
+        offer(new Finished(then));
+    }
+
+    /** Drops everything still queued; later results are ignored. FX thread. */
+    void close() {
+        closed = true;
+        queue.clear();
+        pulse.stop();
+    }
+
+    private void offer(Object item) {
+        if (closed) return;
+        queue.add(item);
+        if (queued.compareAndSet(false, true)) Platform.runLater(pulse::start);
+    }
+
+    private void applyFrame() {
+        if (closed) {
+            pulse.stop();
+            return;
+        }
+        long start = System.nanoTime();
+        frames++;
+        int before = tracks.size();
+        int selected = search.selectedId();
+        List<Runnable> finished = new ArrayList<>();
+        tracks.batch(() -> drain(start + SLICE_NANOS, finished));
+        if (selected >= 0 && search.selectedId() != selected) search.select(selected);
+
+        if (firstRowNanos < 0 && tracks.size() > before) {
+            firstRowNanos = System.nanoTime() - startNanos;
+            Metrics.timer("scan.firstRow").record(firstRowNanos);
+        }
+        for (Runnable then : finished) {
+            then.run();
+            if (--pendingRoots == 0) report();
+        }
+
+        if (queue.isEmpty()) {
+            pulse.stop();
+            queued.set(false);
+            // an item added between the check and the reset would otherwise wait for the next one
+            if (!queue.isEmpty() && queued.compareAndSet(false, true)) pulse.start();
+        }
+    }
+
+    private void drain(long deadline, List<Runnable> finished) {
+        Object item;
+        while ((item = queue.peek()) != null && System.nanoTime() < deadline) {
+            queue.poll();
+            if (item instanceof TrackInfo info) {
+                if (wanted.test(info.path())) tracks.put(info);
+            } else if (item instanceof Listed listed) {
+                List<TrackInfo> placeholders = new ArrayList<>(listed.files().size());
+                for (Path file : listed.files()) {
+                    if (wanted.test(file) && tracks.find(file) < 0) placeholders.add(new TrackInfo(file, null, null, null));
+                }
+                if (!placeholders.isEmpty()) tracks.mergeSorted(placeholders);
+            } else if (item instanceof Unreadable unreadable) {
+                remove.accept(unreadable.file());
+            } else if (item instanceof Finished done) {
+                finished.add(done.then());
+            }
+        }
+    }
+
+    private void report() {
+        long fullNanos = System.nanoTime() - startNanos;
+        Metrics.timer("scan.fullList").record(fullNanos);
+        System.out.printf("Library list: first row after %.0f ms, complete after %.0f ms over %d frames (%d tracks)%n",
+                Math.max(0, firstRowNanos) / 1e6, fullNanos / 1e6, frames, tracks.size());
+    }
+}
@@ -0,0 +1,271 @@
+package org.example.ugplayer;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental inverted index over normalized title/artist/album words, keyed by track id.
+ *
+ * <p>Every distinct word goes into a vocabulary with the ids of the tracks that use it. The
+ * vocabulary itself is indexed by trigrams (for query tokens of three or more characters, matched
+ * anywhere inside a word) and by one/two-character prefixes (for shorter tokens). A query resolves
+ * each token against the vocabulary, which is far smaller than the library, and only then touches
+ * track ids, so no track text is scanned. A single letter matches most of a library through
+ * thousands of words, so the tracks of every initial are also kept per initial, as a bit set that
+ * is turned into a sorted id list on the first query after a change.
+ * Not thread-safe; {@link LibrarySearch} confines it to one thread.
+ */
+final class SearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final int[] NONE = new int[0];
+
+    // === vocabulary: word id -> word and the tracks using it ===
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final List<IntList> wordTracks = new ArrayList<>();
+    private final Map<Long, IntList> trigramWords = new HashMap<>();
+    private final Map<Long, IntList> prefixWords = new HashMap<>();
+    private final Map<Character, Initial> initials = new HashMap<>();
+
+    // === track id -> word ids ===
+    private int[][] docs = new int[1024][];
+    private int liveCount;
+
+    /** Indexes (or re-indexes) a track. */
+    void put(int id, String title, String artist, String album) {
+        remove(id);
+        List<String> tokens = tokens(title + " " + artist + " " + album);
+        int[] doc = new int[tokens.size()];
+        int n = 0;
+        for (String token : tokens) {
+            int w = wordId(token);
+            boolean seen = false;
+            for (int i = 0; i < n && !seen; i++) seen = doc[i] == w;
+            if (!seen) doc[n++] = w;
+        }
+        doc = Arrays.copyOf(doc, n);
+
+        if (id >= docs.length) docs = Arrays.copyOf(docs, Math.max(id + 1, docs.length * 2));
+        docs[id] = doc;
+        liveCount++;
+        for (int w : doc) {
+            wordTracks.get(w).insert(id);
+            initials.computeIfAbsent(words.get(w).charAt(0), c -> new Initial()).add(id);
+        }
+    }
+
+    void remove(int id) {
+        if (id >= docs.length || docs[id] == null) return;
+        for (int w : docs[id]) {
+            wordTracks.get(w).delete(id);
+            initials.get(words.get(w).charAt(0)).remove(id);
+        }
+        docs[id] = null;
+        liveCount--;
+    }
+
+    void clear() {
+        wordIds.clear();
+        words.clear();
+        wordTracks.clear();
+        trigramWords.clear();
+        prefixWords.clear();
+        initials.clear();
+        Arrays.fill(docs, null);
+        liveCount = 0;
+    }
+
+    int size() {
+        return liveCount;
+    }
+
+    /** Ids matching every token of {@code query}, ascending. An empty query returns {@code null}. */
+    int[] search(String query) {
+        List<String> tokens = tokens(query);
+        if (tokens.isEmpty()) return null;
+
+        // resolve tokens against the vocabulary; start from the one with the fewest tracks
+        List<int[]> matches = new ArrayList<>(tokens.size());
+        int rarest = 0;
+        long rarestCount = Long.MAX_VALUE;
+        for (String token : tokens) {
+            int[] ws = matchingWords(token);
+            if (ws.length == 0) return NONE;
+            long count = token.length() == 1 ? initials.get(token.charAt(0)).ids().length : 0;
+            for (int i = 0; i < ws.length && token.length() > 1; i++) count += wordTracks.get(ws[i]).size;
+            if (count < rarestCount) {
+                rarestCount = count;
+                rarest = matches.size();
+            }
+            matches.add(ws);
+        }
+        String first = tokens.get(rarest);
+        int[] ids = first.length() == 1 ? initials.get(first.charAt(0)).ids().clone() : tracksOf(matches.get(rarest));
+
+        // narrow down by the other tokens through each candidate's own word list
+        for (int t = 0; t < matches.size() && ids.length > 0; t++) {
+            if (t == rarest) continue;
+            BitSet wanted = new BitSet(words.size());
+            for (int w : matches.get(t)) wanted.set(w);
+            int n = 0;
+            for (int id : ids) {
+                for (int w : docs[id]) {
+                    if (wanted.get(w)) {
+                        ids[n++] = id;
+                        break;
+                    }
+                }
+            }
+            ids = n == ids.length ? ids : Arrays.copyOf(ids, n);
+        }
+        return ids;
+    }
+
+    /** Word ids containing {@code token} (three or more characters) or starting with it (shorter). */
+    private int[] matchingWords(String token) {
+        if (token.length() < 3) {
+            IntList ws = prefixWords.get(gram(token, 0, token.length()));
+            return ws == null ? NONE : Arrays.copyOf(ws.ids, ws.size);
+        }
+        IntList rarest = null;
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            IntList ws = trigramWords.get(gram(token, i, 3));
+            if (ws == null) return NONE;
+            if (rarest == null || ws.size < rarest.size) rarest = ws;
+        }
+        int[] out = new int[rarest.size];
+        int n = 0;
+        for (int i = 0; i < rarest.size; i++) {
+            int w = rarest.ids[i];
+            if (token.length() == 3 || words.get(w).contains(token)) out[n++] = w;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /** Union of the tracks using any of {@code ws}, ascending. */
+    private int[] tracksOf(int[] ws) {
+        if (ws.length == 1) {
+            IntList ids = wordTracks.get(ws[0]);
+            return Arrays.copyOf(ids.ids, ids.size);
+        }
+        BitSet union = new BitSet(docs.length);
+        for (int w : ws) {
+            IntList ids = wordTracks.get(w);
+            for (int i = 0; i < ids.size; i++) union.set(ids.ids[i]);
+        }
+        return ids(union);
+    }
+
+    private static int[] ids(BitSet set) {
+        int[] out = new int[set.cardinality()];
+        int n = 0;
+        for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) out[n++] = id;
+        return out;
+    }
+
+    private int wordId(String word) {
+        Integer known = wordIds.get(word);
+        if (known != null) return known;
+        int w = words.size();
+        wordIds.put(word, w);
+        words.add(word);
+        wordTracks.add(new IntList());
+        // word ids only grow, so these lists stay sorted by appending
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            IntList ws = trigramWords.computeIfAbsent(gram(word, i, 3), k -> new IntList());
+            if (ws.size == 0 || ws.ids[ws.size - 1] != w) ws.append(w);
+        }
+        prefixWords.computeIfAbsent(gram(word, 0, 1), k -> new IntList()).append(w);
+        if (word.length() >= 2) prefixWords.computeIfAbsent(gram(word, 0, 2), k -> new IntList()).append(w);
+        return w;
+    }
+
+    // === text ===
+
+    /** Lower-cases, strips accents and splits on anything that is not a letter or digit. */
+    static List<String> tokens(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null) return out;
+        String norm = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= norm.length(); i++) {
+            boolean word = i < norm.length() && Character.isLetterOrDigit(norm.charAt(i));
+            if (word && start < 0) start = i;
+            else if (!word && start >= 0) {
+                out.add(norm.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    /** Packs up to three UTF-16 chars into one key. */
+    private static long gram(String s, int from, int length) {
+        long g = length;
+        for (int i = 0; i < length; i++) g = (g << 16) | s.charAt(from + i);
+        return g;
+    }
+
+    /** Tracks with a word starting with one character. */
+    private static final class Initial {
+        private final BitSet tracks = new BitSet();
+        private int[] ids;
+
+        void add(int id) {
+            tracks.set(id);
+            ids = null;
+        }
+
+        void remove(int id) {
+            tracks.clear(id);
+            ids = null;
+        }
+
+        /** Ascending; shared, so callers copy before changing it. */
+        int[] ids() {
+            if (ids == null) ids = SearchIndex.ids(tracks);
+            return ids;
+        }
+    }
+
+    /** Sorted, growable int list. */
+    private static final class IntList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void append(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        /** Inserts in order; track ids mostly arrive ascending, which makes this an append. */
+        void insert(int id) {
+            if (size == 0 || ids[size - 1] < id) {
+                append(id);
+                return;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) return;
+            at = -at - 1;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        void delete(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) return;
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+        }
+    }
+}
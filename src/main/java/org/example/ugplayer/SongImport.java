@@ -0,0 +1,185 @@
+package org.example.ugplayer;
+
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Copies chosen files into the songs folder off the FX thread. Files are copied with
+ * {@link FileChannel#transferTo} in chunks, so the kernel moves the bytes and the task can be
+ * cancelled between chunks; a cancelled or failed copy leaves no partial file behind.
+ *
+ * <p>Duplicates are found by content: a file is only hashed (SHA-256) when the folder already has a
+ * file of exactly the same size, and hashes are remembered for the rest of the import. A different
+ * song that happens to have a taken name is stored as {@code name (2).mp3}.
+ *
+ * <p>{@code onCopied} is called on the import thread as soon as each file is in place.
+ */
+final class SongImport extends Task<SongImport.Result> {
+
+    private static final long CHUNK = 8L * 1024 * 1024;
+
+    /** What happened to the chosen files. */
+    record Result(List<Path> copied, List<Path> duplicates, List<Path> failed, long bytes) {
+    }
+
+    private final List<Path> sources;
+    private final Path songsDir;
+    private final Consumer<Path> onCopied;
+
+    // files in the songs folder by size, and the hashes computed so far
+    private final Map<Long, List<Path>> bySize = new HashMap<>();
+    private final Map<Path, byte[]> hashes = new HashMap<>();
+
+    SongImport(List<Path> sources, Path songsDir, Consumer<Path> onCopied) {
+        this.sources = sources;
+        this.songsDir = songsDir;
+        this.onCopied = onCopied;
+    }
+
+    @Override
+    protected Result call() throws Exception {
+        updateMessage("Preparing import…");
+        long total = 0;
+        for (Path src : sources) total += Files.size(src);
+        try (DirectoryStream<Path> existing = Files.newDirectoryStream(songsDir)) {
+            for (Path p : existing) {
+                if (Files.isRegularFile(p)) bySize.computeIfAbsent(Files.size(p), s -> new ArrayList<>()).add(p);
+            }
+        }
+
+        List<Path> copied = new ArrayList<>();
+        List<Path> duplicates = new ArrayList<>();
+        List<Path> failed = new ArrayList<>();
+        long done = 0;
+        for (Path src : sources) {
+            if (isCancelled()) break;
+            long size = Files.size(src);
+            updateMessage("Importing " + src.getFileName() + " (" + (copied.size() + duplicates.size() + failed.size() + 1) + " of " + sources.size() + ")");
+            try {
+                if (findDuplicate(src, size) != null) {
+                    duplicates.add(src);
+                } else {
+                    Path dest = copy(src, size, done, total);
+                    if (dest == null) break; // cancelled
+                    bySize.computeIfAbsent(size, s -> new ArrayList<>()).add(dest);
+                    if (hashes.containsKey(src)) hashes.put(dest, hashes.get(src));
+                    copied.add(dest);
+                    onCopied.accept(dest);
+                }
+            } catch (IOException e) {
+                if (isCancelled()) break;
+                System.err.println("Cannot import " + src + ": " + e.getMessage());
+                failed.add(src);
+            }
+            done += size;
+            updateProgress(done, total);
+        }
+        updateMessage(copied.size() + " added, " + duplicates.size() + " already in library");
+        return new Result(copied, duplicates, failed, done);
+    }
+
+    /** A file in the songs folder with the same content as {@code src}, or {@code null}. */
+    private Path findDuplicate(Path src, long size) throws IOException {
+        List<Path> sameSize = bySize.get(size);
+        if (sameSize == null) return null;
+        byte[] hash = hash(src);
+        for (Path candidate : sameSize) {
+            if (Arrays.equals(hash, hash(candidate))) return candidate;
+        }
+        return null;
+    }
+
+    private byte[] hash(Path file) throws IOException {
+        byte[] known = hashes.get(file);
+        if (known != null) return known;
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (ch.read(buf) >= 0) {
+                buf.flip();
+                digest.update(buf);
+                buf.clear();
+                if (isCancelled()) throw new InterruptedIOException("cancelled");
+            }
+        }
+        byte[] hash = digest.digest();
+        hashes.put(file, hash);
+        return hash;
+    }
+
+    /** Copies into a hidden temp file, then moves it to a free name. Returns {@code null} if cancelled. */
+    private Path copy(Path src, long size, long doneBefore, long total) throws IOException {
+        Path tmp = songsDir.resolve("." + src.getFileName() + ".part");
+        long start = System.nanoTime();
+        PlayerEvents.ImportCopy event = new PlayerEvents.ImportCopy();
+        event.begin();
+        boolean cancelled = false;
+        try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long pos = 0;
+            while (pos < size) {
+                if (isCancelled()) {
+                    cancelled = true;
+                    break;
+                }
+                long n = in.transferTo(pos, Math.min(CHUNK, size - pos), out);
+                if (n <= 0) throw new IOException("Copy stalled at " + pos + " of " + size + " bytes");
+                pos += n;
+                updateProgress(doneBefore + pos, total);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        // the channels are closed by now, so the partial copy can be deleted on every platform
+        if (cancelled) {
+            Files.deleteIfExists(tmp);
+            return null;
+        }
+
+        Path dest = freeName(src.getFileName().toString());
+        try {
+            Files.move(tmp, dest, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, dest);
+        }
+        event.path = dest.toString();
+        event.bytes = size;
+        event.commit();
+        Metrics.throughput("import.copy").record(size, System.nanoTime() - start);
+        return dest;
+    }
+
+    /** {@code name}, or {@code name (2)}, {@code name (3)}, … if it is taken by a different song. */
+    private Path freeName(String fileName) {
+        Path dest = songsDir.resolve(fileName);
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String ext = dot > 0 ? fileName.substring(dot) : "";
+        for (int i = 2; Files.exists(dest); i++) dest = songsDir.resolve(base + " (" + i + ")" + ext);
+        return dest;
+    }
+}
@@ -0,0 +1,421 @@
+package org.example.ugplayer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Reads title/artist/album straight from file headers, without creating a {@code MediaPlayer}.
+ * Supports ID3v2/ID3v1 (mp3, aac), MP4 {@code moov/udta/meta/ilst} atoms (m4a, aac) and
+ * RIFF {@code LIST/INFO} chunks (wav). Only the tag blocks are read, never the audio payload.
+ * Embedded cover art (ID3 {@code APIC}, MP4 {@code covr}) is only copied out by {@link #readArt(Path)}.
+ */
+public final class TagReader {
+
+    /** Largest tag block we are willing to pull into memory; bigger blocks are treated as corrupt. */
+    private static final int MAX_TAG_BYTES = 16 * 1024 * 1024;
+
+    private TagReader() {
+    }
+
+    /**
+     * Parses the tags of {@code path}.
+     *
+     * @throws IOException if the file cannot be read or its container format is not recognised
+     */
+    public static TrackInfo read(Path path) throws IOException {
+        Tags tags = parse(path, false);
+        return new TrackInfo(path, tags.title, tags.artist, tags.album);
+    }
+
+    /**
+     * Returns the encoded bytes (JPEG/PNG) of the embedded cover, preferring the front cover, or
+     * {@code null} if the file has none.
+     *
+     * @throws IOException if the file cannot be read or its container format is not recognised
+     */
+    public static byte[] readArt(Path path) throws IOException {
+        return parse(path, true).art;
+    }
+
+    /**
+     * Returns {@code [start, end)} of the audio payload of {@code path}: the file without its ID3v2
+     * and ID3v1 tags (mp3, aac), the {@code mdat} atom (m4a) or the {@code data} chunk (wav). Two
+     * copies of a song that only differ in their tags have equal payloads.
+     *
+     * @throws IOException if the file cannot be read or its container format is not recognised
+     */
+    public static long[] payloadRange(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer first = readAt(ch, 4, 4);
+            if (name.endsWith(".m4a") || (name.endsWith(".aac") && first.remaining() == 4 && "ftyp".equals(fourCC(first, 0)))) {
+                long[] mdat = findAtom(ch, 0, size, "mdat");
+                if (mdat == null) throw new IOException("MP4 without mdat atom");
+                return mdat;
+            }
+            if (name.endsWith(".wav")) return riffData(ch);
+            if (!name.endsWith(".mp3") && !name.endsWith(".aac")) {
+                throw new IOException("Unsupported format: " + path.getFileName());
+            }
+
+            long start = 0;
+            ByteBuffer header = readAt(ch, 0, 10);
+            if (header.remaining() == 10 && header.get(0) == 'I' && header.get(1) == 'D' && header.get(2) == '3') {
+                boolean footer = (header.get(5) & 0x10) != 0;
+                start = 10 + syncSafe(header, 6) + (footer ? 10 : 0);
+            }
+            long end = size;
+            if (end - start >= 128) {
+                ByteBuffer tail = readAt(ch, end - 128, 3);
+                if (tail.get(0) == 'T' && tail.get(1) == 'A' && tail.get(2) == 'G') end -= 128;
+            }
+            return new long[]{Math.min(start, end), end};
+        }
+    }
+
+    private static Tags parse(Path path, boolean wantArt) throws IOException {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            Tags tags = new Tags(wantArt);
+            if (name.endsWith(".mp3")) {
+                if (!readId3v2(ch, tags)) readId3v1(ch, tags);
+            } else if (name.endsWith(".m4a")) {
+                if (!readMp4(ch, tags)) throw new IOException("Not an MP4 file");
+            } else if (name.endsWith(".aac")) {
+                // raw ADTS streams carry ID3, but many ".aac" files are really MP4 containers
+                if (!readId3v2(ch, tags) && !readMp4(ch, tags)) readId3v1(ch, tags);
+            } else if (name.endsWith(".wav")) {
+                readRiff(ch, tags);
+            } else {
+                throw new IOException("Unsupported format: " + path.getFileName());
+            }
+            return tags;
+        }
+    }
+
+    private static final class Tags {
+        final boolean wantArt;
+        String title;
+        String artist;
+        String album;
+        byte[] art;
+        boolean frontCover;
+
+        Tags(boolean wantArt) {
+            this.wantArt = wantArt;
+        }
+
+        void putArt(byte[] data, boolean front) {
+            if (data == null || data.length == 0 || (art != null && (frontCover || !front))) return;
+            art = data;
+            frontCover = front;
+        }
+
+        void put(String key, String value) {
+            if (value == null || value.isBlank()) return;
+            value = value.trim();
+            switch (key) {
+                case "title" -> { if (title == null) title = value; }
+                case "artist" -> { if (artist == null) artist = value; }
+                case "album" -> { if (album == null) album = value; }
+                default -> {
+                }
+            }
+        }
+    }
+
+    // === ID3 ===
+
+    private static boolean readId3v2(FileChannel ch, Tags tags) throws IOException {
+        ByteBuffer header = readAt(ch, 0, 10);
+        if (header.remaining() < 10 || header.get(0) != 'I' || header.get(1) != 'D' || header.get(2) != '3') {
+            return false;
+        }
+        int major = header.get(3);
+        int flags = header.get(5) & 0xFF;
+        int size = syncSafe(header, 6);
+        if (major < 2 || major > 4 || size <= 0 || size > MAX_TAG_BYTES) {
+            throw new IOException("Bad ID3v2 header");
+        }
+
+        ByteBuffer tag = readAt(ch, 10, size);
+        if ((flags & 0x80) != 0 && major < 4) tag = unsynchronise(tag);
+        if ((flags & 0x40) != 0 && major >= 3) {
+            int extSize = major == 4 ? syncSafe(tag, 0) : tag.getInt(0) + 4;
+            tag.position(Math.min(tag.limit(), extSize));
+        }
+
+        int idLen = major == 2 ? 3 : 4;
+        int headerLen = major == 2 ? 6 : 10;
+        while (tag.remaining() >= headerLen) {
+            int start = tag.position();
+            if (tag.get(start) == 0) break; // padding
+            String id = new String(tag.array(), tag.arrayOffset() + start, idLen, StandardCharsets.ISO_8859_1);
+            int frameSize;
+            if (major == 2) {
+                frameSize = ((tag.get(start + 3) & 0xFF) << 16) | ((tag.get(start + 4) & 0xFF) << 8) | (tag.get(start + 5) & 0xFF);
+            } else if (major == 3) {
+                frameSize = tag.getInt(start + 4);
+            } else {
+                frameSize = syncSafe(tag, start + 4);
+            }
+            int body = start + headerLen;
+            if (frameSize <= 0 || body + frameSize > tag.limit()) break;
+
+            String key = switch (id) {
+                case "TIT2", "TT2" -> "title";
+                case "TPE1", "TP1" -> "artist";
+                case "TALB", "TAL" -> "album";
+                default -> null;
+            };
+            if (key != null) tags.put(key, id3Text(tag, body, frameSize));
+            if (tags.wantArt && (id.equals("APIC") || id.equals("PIC"))) {
+                ByteBuffer frame = ByteBuffer.wrap(tag.array(), tag.arrayOffset() + body, frameSize).slice();
+                int frameFlags = major == 4 ? tag.get(start + 9) & 0xFF : 0;
+                if ((frameFlags & 0x01) != 0) frame.position(Math.min(frame.limit(), 4)); // data length indicator
+                if ((frameFlags & 0x02) != 0) frame = unsynchronise(frame);
+                else frame = frame.slice();
+                id3Picture(frame, major == 2, tags);
+            }
+            tag.position(body + frameSize);
+        }
+        return true;
+    }
+
+    private static void readId3v1(FileChannel ch, Tags tags) throws IOException {
+        long size = ch.size();
+        if (size < 128) return;
+        ByteBuffer tag = readAt(ch, size - 128, 128);
+        if (tag.get(0) != 'T' || tag.get(1) != 'A' || tag.get(2) != 'G') return;
+        tags.put("title", latin1(tag, 3, 30));
+        tags.put("artist", latin1(tag, 33, 30));
+        tags.put("album", latin1(tag, 63, 30));
+    }
+
+    private static String id3Text(ByteBuffer tag, int offset, int length) {
+        int encoding = tag.get(offset);
+        Charset charset = switch (encoding) {
+            case 1 -> StandardCharsets.UTF_16;
+            case 2 -> StandardCharsets.UTF_16BE;
+            case 3 -> StandardCharsets.UTF_8;
+            default -> StandardCharsets.ISO_8859_1;
+        };
+        String text = new String(tag.array(), tag.arrayOffset() + offset + 1, length - 1, charset);
+        int nul = text.indexOf('\0');
+        return nul >= 0 ? text.substring(0, nul) : text;
+    }
+
+    /** APIC: encoding, MIME type, picture type, description, data. PIC (v2.2) has a 3-char format instead of the MIME type. */
+    private static void id3Picture(ByteBuffer frame, boolean v22, Tags tags) {
+        int limit = frame.limit();
+        if (limit < 4) return;
+        int encoding = frame.get(0);
+        int pos = 1;
+        if (v22) {
+            pos += 3;
+        } else {
+            while (pos < limit && frame.get(pos) != 0) pos++;
+            pos++;
+        }
+        if (pos >= limit) return;
+        int pictureType = frame.get(pos++) & 0xFF;
+        boolean wide = encoding == 1 || encoding == 2;
+        while (pos < limit) {
+            if (!wide && frame.get(pos) == 0) {
+                pos++;
+                break;
+            }
+            if (wide && pos + 1 < limit && frame.get(pos) == 0 && frame.get(pos + 1) == 0) {
+                pos += 2;
+                break;
+            }
+            pos += wide ? 2 : 1;
+        }
+        if (pos >= limit) return;
+        byte[] data = new byte[limit - pos];
+        frame.get(pos, data);
+        tags.putArt(data, pictureType == 3);
+    }
+
+    private static ByteBuffer unsynchronise(ByteBuffer in) {
+        byte[] out = new byte[in.remaining()];
+        int n = 0;
+        for (int i = in.position(); i < in.limit(); i++) {
+            byte b = in.get(i);
+            out[n++] = b;
+            if ((b & 0xFF) == 0xFF && i + 1 < in.limit() && in.get(i + 1) == 0) i++;
+        }
+        return ByteBuffer.wrap(out, 0, n).slice();
+    }
+
+    private static int syncSafe(ByteBuffer buf, int offset) {
+        return ((buf.get(offset) & 0x7F) << 21) | ((buf.get(offset + 1) & 0x7F) << 14)
+                | ((buf.get(offset + 2) & 0x7F) << 7) | (buf.get(offset + 3) & 0x7F);
+    }
+
+    // === MP4 ===
+
+    private static boolean readMp4(FileChannel ch, Tags tags) throws IOException {
+        ByteBuffer first = readAt(ch, 4, 4);
+        if (first.remaining() < 4 || !"ftyp".equals(fourCC(first, 0))) return false;
+
+        long[] moov = findAtom(ch, 0, ch.size(), "moov");
+        if (moov == null) throw new IOException("MP4 without moov atom");
+        long[] udta = findAtom(ch, moov[0], moov[1], "udta");
+        if (udta == null) return true;
+        long[] meta = findAtom(ch, udta[0], udta[1], "meta");
+        if (meta == null) return true;
+
+        // "meta" is a full box (4 bytes version/flags) in ISO files but a plain box in old QuickTime files
+        long metaStart = meta[0];
+        ByteBuffer probe = readAt(ch, metaStart + 4, 4);
+        if (probe.remaining() == 4 && !"hdlr".equals(fourCC(probe, 0))) metaStart += 4;
+
+        long[] ilst = findAtom(ch, metaStart, meta[1], "ilst");
+        if (ilst == null) return true;
+        if (ilst[1] - ilst[0] > MAX_TAG_BYTES) throw new IOException("MP4 ilst too large");
+
+        ByteBuffer items = readAt(ch, ilst[0], (int) (ilst[1] - ilst[0]));
+        while (items.remaining() >= 8) {
+            int start = items.position();
+            int itemSize = items.getInt(start);
+            if (itemSize < 8 || start + itemSize > items.limit()) break;
+            String atom = fourCC(items, start + 4);
+            String key = switch (atom) {
+                case "©nam" -> "title";
+                case "©ART", "aART" -> "artist";
+                case "©alb" -> "album";
+                default -> null;
+            };
+            // item -> "data" atom: size, "data", type(4), locale(4), value
+            int data = start + 8;
+            if (tags.wantArt && atom.equals("covr") && itemSize >= 24 && "data".equals(fourCC(items, data + 4))) {
+                int dataSize = Math.min(items.getInt(data), start + itemSize - data);
+                if (dataSize > 16) {
+                    byte[] art = new byte[dataSize - 16];
+                    items.get(data + 16, art);
+                    tags.putArt(art, true);
+                }
+            }
+            if (key != null && itemSize >= 24 && "data".equals(fourCC(items, data + 4))) {
+                int dataSize = Math.min(items.getInt(data), start + itemSize - data);
+                if (dataSize > 16) {
+                    tags.put(key, new String(items.array(), items.arrayOffset() + data + 16, dataSize - 16, StandardCharsets.UTF_8));
+                }
+            }
+            items.position(start + itemSize);
+        }
+        return true;
+    }
+
+    /** Returns {@code [contentStart, end]} of the first child atom named {@code type} within the range. */
+    private static long[] findAtom(FileChannel ch, long from, long to, String type) throws IOException {
+        long pos = from;
+        while (pos + 8 <= to) {
+            ByteBuffer h = readAt(ch, pos, 16);
+            if (h.remaining() < 8) return null;
+            long size = h.getInt(0) & 0xFFFFFFFFL;
+            int headerLen = 8;
+            if (size == 1) {
+                if (h.remaining() < 16) return null;
+                size = h.getLong(8);
+                headerLen = 16;
+            } else if (size == 0) {
+                size = to - pos;
+            }
+            if (size < headerLen || pos + size > to) return null;
+            if (type.equals(fourCC(h, 4))) return new long[]{pos + headerLen, pos + size};
+            pos += size;
+        }
+        return null;
+    }
+
+    // === RIFF / WAV ===
+
+    private static void readRiff(FileChannel ch, Tags tags) throws IOException {
+        ByteBuffer header = readAt(ch, 0, 12).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.remaining() < 12 || !"RIFF".equals(fourCC(header, 0)) || !"WAVE".equals(fourCC(header, 8))) {
+            throw new IOException("Not a RIFF/WAVE file");
+        }
+        long end = Math.min(ch.size(), 8 + (header.getInt(4) & 0xFFFFFFFFL));
+        long pos = 12;
+        while (pos + 8 <= end) {
+            ByteBuffer chunk = readAt(ch, pos, 12).order(ByteOrder.LITTLE_ENDIAN);
+            if (chunk.remaining() < 8) return;
+            String id = fourCC(chunk, 0);
+            long size = chunk.getInt(4) & 0xFFFFFFFFL;
+            if ("LIST".equals(id) && size >= 4 && chunk.remaining() >= 12 && "INFO".equals(fourCC(chunk, 8))) {
+                if (size > MAX_TAG_BYTES) throw new IOException("RIFF LIST too large");
+                readInfo(readAt(ch, pos + 12, (int) size - 4).order(ByteOrder.LITTLE_ENDIAN), tags);
+            }
+            pos += 8 + size + (size & 1);
+        }
+    }
+
+    private static long[] riffData(FileChannel ch) throws IOException {
+        ByteBuffer header = readAt(ch, 0, 12).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.remaining() < 12 || !"RIFF".equals(fourCC(header, 0)) || !"WAVE".equals(fourCC(header, 8))) {
+            throw new IOException("Not a RIFF/WAVE file");
+        }
+        long end = ch.size();
+        long pos = 12;
+        while (pos + 8 <= end) {
+            ByteBuffer chunk = readAt(ch, pos, 8).order(ByteOrder.LITTLE_ENDIAN);
+            if (chunk.remaining() < 8) break;
+            long size = chunk.getInt(4) & 0xFFFFFFFFL;
+            if ("data".equals(fourCC(chunk, 0))) return new long[]{pos + 8, Math.min(end, pos + 8 + size)};
+            pos += 8 + size + (size & 1);
+        }
+        throw new IOException("RIFF without data chunk");
+    }
+
+    private static void readInfo(ByteBuffer info, Tags tags) {
+        while (info.remaining() >= 8) {
+            int start = info.position();
+            String id = fourCC(info, start);
+            int size = info.getInt(start + 4);
+            if (size < 0 || start + 8 + size > info.limit()) return;
+            String key = switch (id) {
+                case "INAM" -> "title";
+                case "IART" -> "artist";
+                case "IPRD" -> "album";
+                default -> null;
+            };
+            if (key != null) {
+                String text = new String(info.array(), info.arrayOffset() + start + 8, size, StandardCharsets.UTF_8);
+                int nul = text.indexOf('\0');
+                tags.put(key, nul >= 0 ? text.substring(0, nul) : text);
+            }
+            info.position(start + 8 + size + (size & 1));
+        }
+    }
+
+    // === Helpers ===
+
+    private static ByteBuffer readAt(FileChannel ch, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + buf.position());
+            if (n < 0) break;
+        }
+        return buf.flip();
+    }
+
+    private static String fourCC(ByteBuffer buf, int offset) {
+        return new String(buf.array(), buf.arrayOffset() + offset, 4, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String latin1(ByteBuffer buf, int offset, int length) {
+        String s = new String(buf.array(), buf.arrayOffset() + offset, length, StandardCharsets.ISO_8859_1);
+        int nul = s.indexOf('\0');
+        return nul >= 0 ? s.substring(0, nul) : s;
+    }
+}
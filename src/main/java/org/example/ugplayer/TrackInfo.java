@@ -0,0 +1,37 @@
+package org.example.ugplayer;
+
+import java.nio.file.Path;
+
+/**
+ * Title/artist/album of one audio file, as read by {@link TagReader} or the JavaFX probe.
+ * Missing tags are {@code null}; use the {@code display*} accessors for list text.
+ * {@code size} and {@code modified} identify the file version the tags were read from
+ * ({@code -1} when unknown).
+ */
+public record TrackInfo(Path path, String title, String artist, String album, long size, long modified) {
+
+    public static final String UNKNOWN_ARTIST = "Unknown Artist";
+
+    public TrackInfo(Path path, String title, String artist, String album) {
+        this(path, title, artist, album, -1, -1);
+    }
+
+    public TrackInfo withFileStamp(long size, long modified) {
+        return new TrackInfo(path, title, artist, album, size, modified);
+    }
+
+    public String displayTitle() {
+        return title != null && !title.isBlank() ? title : fileTitle(path);
+    }
+
+    public String displayArtist() {
+        return artist != null && !artist.isBlank() ? artist : UNKNOWN_ARTIST;
+    }
+
+    /** File name without its extension, used when a file carries no title tag. */
+    public static String fileTitle(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && dot < name.length() - 1 ? name.substring(0, dot) : name;
+    }
+}
@@ -0,0 +1,540 @@
+package org.example.ugplayer;
+
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar store for the library's tracks, kept in path order. Each column is a plain array indexed
+ * by row; artists, albums and directories are interned into shared pools, and paths are kept as a
+ * directory reference plus a file name. Every track gets a stable id that survives inserts and
+ * removals, so callers should hold ids rather than rows.
+ *
+ * <p>{@link #titles()} is a read-only {@code ObservableList} over the title column that a
+ * {@code ListView} can use directly. Changes made inside {@link #batch(Runnable)} reach its
+ * listeners as a single change event. Code that keeps its own view of the tracks (such as the search
+ * index) registers a {@link Listener} instead. Must be used from the FX thread.
+ */
+public final class TrackStore {
+
+    private static final int[] EMPTY = new int[0];
+
+    /** Per-track change notifications, called after the store was updated. */
+    public interface Listener {
+        /** A track was inserted or its tags changed. */
+        void changed(int id);
+
+        void removed(int id);
+
+        void cleared();
+    }
+
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private final StringPool artists = new StringPool();
+    private final StringPool albums = new StringPool();
+    private final StringPool dirs = new StringPool();
+    private final TitleList titleView = new TitleList();
+
+    // === columns, indexed by row ===
+    private int size;
+    private int[] ids = new int[16];
+    private String[] titles = new String[16];
+    private int[] artistRefs = new int[16];
+    private int[] albumRefs = new int[16];
+    private int[] dirRefs = new int[16];
+    private String[] fileNames = new String[16];
+
+    // === id -> row; entries for rows >= staleFrom may be out of date after a shift ===
+    private int[] idToRow = new int[16];
+    private int nextId;
+    private int staleFrom = Integer.MAX_VALUE;
+
+    // === path -> id, open addressing over (dirRef, fileName); 0 = empty, -1 = deleted, else id + 1 ===
+    private int[] pathSlots = new int[32];
+    private int pathSlotsUsed;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int idAt(int row) {
+        checkRow(row);
+        return ids[row];
+    }
+
+    /** Current row of {@code id}, or -1 if the track was removed. */
+    public int rowOf(int id) {
+        if (id < 0 || id >= nextId) return -1;
+        int row = idToRow[id];
+        if (row >= staleFrom) {
+            reindex();
+            row = idToRow[id];
+        }
+        return row;
+    }
+
+    public boolean contains(int id) {
+        return rowOf(id) >= 0;
+    }
+
+    public String title(int id) {
+        return titles[requireRow(id)];
+    }
+
+    public String artist(int id) {
+        return artists.get(artistRefs[requireRow(id)]);
+    }
+
+    public String album(int id) {
+        return albums.get(albumRefs[requireRow(id)]);
+    }
+
+    public Path path(int id) {
+        int row = requireRow(id);
+        return Path.of(dirs.get(dirRefs[row]), fileNames[row]);
+    }
+
+    /** Id of the track stored for {@code path}, or -1. */
+    public int find(Path path) {
+        Path dir = path.getParent();
+        int dirRef = dir != null ? dirs.find(dir.toString()) : -1;
+        if (dirRef < 0) return -1;
+        String name = path.getFileName().toString();
+        int mask = pathSlots.length - 1;
+        for (int slot = pathHash(dirRef, name) & mask; ; slot = (slot + 1) & mask) {
+            int v = pathSlots[slot];
+            if (v == 0) return -1;
+            if (v > 0) {
+                int row = rowOf(v - 1);
+                if (row >= 0 && dirRefs[row] == dirRef && fileNames[row].equals(name)) return v - 1;
+            }
+        }
+    }
+
+    /** Read-only list of display titles, row by row. Hand it to a {@code ListView} as-is. */
+    public ObservableList<String> titles() {
+        return titleView;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /** Runs {@code changes} so that list listeners see one combined change event. */
+    public void batch(Runnable changes) {
+        titleView.begin();
+        try {
+            changes.run();
+        } finally {
+            titleView.end();
+        }
+    }
+
+    // === mutations ===
+
+    /** Updates the track stored for {@code info.path()}, or inserts it at its path-sorted row. Returns its id. */
+    public int put(TrackInfo info) {
+        int id = find(info.path());
+        if (id >= 0) {
+            int row = rowOf(id);
+            String old = titles[row];
+            setColumns(row, info);
+            titleView.begin();
+            titleView.replaced(row, old);
+            titleView.end();
+            for (Listener l : listeners) l.changed(id);
+            return id;
+        }
+        int row = insertionPoint(info.path());
+        return insert(row, info);
+    }
+
+    public boolean remove(int id) {
+        int row = rowOf(id);
+        if (row < 0) return false;
+
+        String old = titles[row];
+        unlinkPath(id, row);
+        int tail = size - row - 1;
+        System.arraycopy(ids, row + 1, ids, row, tail);
+        System.arraycopy(titles, row + 1, titles, row, tail);
+        System.arraycopy(artistRefs, row + 1, artistRefs, row, tail);
+        System.arraycopy(albumRefs, row + 1, albumRefs, row, tail);
+        System.arraycopy(dirRefs, row + 1, dirRefs, row, tail);
+        System.arraycopy(fileNames, row + 1, fileNames, row, tail);
+        size--;
+        titles[size] = null;
+        fileNames[size] = null;
+        idToRow[id] = -1;
+        if (tail > 0) staleFrom = Math.min(staleFrom, row);
+
+        titleView.begin();
+        titleView.removed(row, old);
+        titleView.end();
+        for (Listener l : listeners) l.removed(id);
+        return true;
+    }
+
+    /**
+     * Removes several tracks at once: each id is unlinked in constant time and the columns are then
+     * compacted in a single pass, instead of shifting the tail once per track. Listeners see one
+     * change event. Returns the number of tracks removed.
+     */
+    public int removeAll(int[] removeIds) {
+        boolean[] gone = new boolean[size];
+        int[] removed = new int[removeIds.length];
+        int first = size;
+        int n = 0;
+        for (int id : removeIds) {
+            int row = rowOf(id);
+            if (row < 0 || gone[row]) continue;
+            gone[row] = true;
+            unlinkPath(id, row);
+            idToRow[id] = -1;
+            first = Math.min(first, row);
+            removed[n++] = id;
+        }
+        if (n == 0) return 0;
+
+        titleView.begin();
+        try {
+            int w = first;
+            for (int row = first; row < size; row++) {
+                // w is where this row sits once the rows removed before it are gone
+                if (gone[row]) titleView.removed(w, titles[row]);
+                else moveRow(row, w++);
+            }
+            Arrays.fill(titles, w, size, null);
+            Arrays.fill(fileNames, w, size, null);
+            size = w;
+            if (first < size) staleFrom = Math.min(staleFrom, first);
+        } finally {
+            titleView.end();
+        }
+        for (int i = 0; i < n; i++) {
+            for (Listener l : listeners) l.removed(removed[i]);
+        }
+        return n;
+    }
+
+    /** Ids of all tracks whose path is below {@code dir}. */
+    public int[] idsUnder(Path dir) {
+        int[] out = EMPTY;
+        int n = 0;
+        for (int row = 0; row < size; row++) {
+            if (Path.of(dirs.get(dirRefs[row])).startsWith(dir)) {
+                if (n == out.length) out = Arrays.copyOf(out, Math.max(16, n * 2));
+                out[n++] = ids[row];
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Merges a path-sorted batch into the store in one pass; tracks already present are updated.
+     * Listeners see a single replace-all change, or just the added rows when the whole batch is new
+     * and sorts after the last row, as a scan's first chunks do.
+     */
+    public void mergeSorted(List<TrackInfo> batch) {
+        List<TrackInfo> fresh = new ArrayList<>(batch.size());
+        List<TrackInfo> updated = new ArrayList<>();
+        int[] touched = new int[batch.size()];
+        int n = 0;
+        for (TrackInfo info : batch) {
+            int id = find(info.path());
+            if (id >= 0) {
+                updated.add(info);
+                touched[n++] = id;
+            } else {
+                fresh.add(info);
+            }
+        }
+        boolean append = updated.isEmpty() && !fresh.isEmpty()
+                && (size == 0 || LibraryScanner.PATH_ORDER.compare(pathAt(size - 1), fresh.get(0).path()) < 0);
+        int firstNew = nextId;
+        titleView.begin();
+        try {
+            if (append) {
+                int from = size;
+                appendNew(fresh);
+                titleView.added(from, size);
+            } else {
+                List<String> oldTitles = Arrays.asList(Arrays.copyOf(titles, size));
+                for (int i = 0; i < updated.size(); i++) setColumns(rowOf(touched[i]), updated.get(i));
+                if (!fresh.isEmpty()) mergeNew(fresh);
+                if (!oldTitles.isEmpty()) titleView.removed(0, oldTitles);
+                titleView.added(0, size);
+            }
+            for (int id = firstNew; id < nextId; id++) touched[n++] = id;
+        } finally {
+            titleView.end();
+        }
+        for (int i = 0; i < n; i++) {
+            for (Listener l : listeners) l.changed(touched[i]);
+        }
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        List<String> oldTitles = Arrays.asList(Arrays.copyOf(titles, size));
+        Arrays.fill(titles, 0, size, null);
+        Arrays.fill(fileNames, 0, size, null);
+        Arrays.fill(idToRow, 0, nextId, -1);
+        Arrays.fill(pathSlots, 0);
+        pathSlotsUsed = 0;
+        size = 0;
+        staleFrom = Integer.MAX_VALUE;
+        titleView.begin();
+        titleView.removed(0, oldTitles);
+        titleView.end();
+        for (Listener l : listeners) l.cleared();
+    }
+
+    // === internals ===
+
+    private int insert(int row, TrackInfo info) {
+        ensureCapacity(size + 1);
+        int tail = size - row;
+        System.arraycopy(ids, row, ids, row + 1, tail);
+        System.arraycopy(titles, row, titles, row + 1, tail);
+        System.arraycopy(artistRefs, row, artistRefs, row + 1, tail);
+        System.arraycopy(albumRefs, row, albumRefs, row + 1, tail);
+        System.arraycopy(dirRefs, row, dirRefs, row + 1, tail);
+        System.arraycopy(fileNames, row, fileNames, row + 1, tail);
+        size++;
+
+        int id = newId(row);
+        ids[row] = id;
+        setPath(row, info.path());
+        setColumns(row, info);
+        linkPath(id, row);
+        if (tail > 0) staleFrom = Math.min(staleFrom, row + 1);
+
+        titleView.begin();
+        titleView.added(row, row + 1);
+        titleView.end();
+        for (Listener l : listeners) l.changed(id);
+        return id;
+    }
+
+    /** Appends new path-sorted tracks that all sort after the last row. */
+    private void appendNew(List<TrackInfo> fresh) {
+        ensureCapacity(size + fresh.size());
+        for (TrackInfo info : fresh) {
+            int row = size++;
+            int id = newId(row);
+            ids[row] = id;
+            setPath(row, info.path());
+            setColumns(row, info);
+            linkPath(id, row);
+        }
+    }
+
+    /** Merges new (not yet stored) path-sorted tracks with the existing rows, back to front. */
+    private void mergeNew(List<TrackInfo> fresh) {
+        ensureCapacity(size + fresh.size());
+        int a = size - 1;
+        int b = fresh.size() - 1;
+        int w = size + fresh.size() - 1;
+        while (b >= 0) {
+            if (a >= 0 && LibraryScanner.PATH_ORDER.compare(pathAt(a), fresh.get(b).path()) > 0) {
+                moveRow(a--, w--);
+            } else {
+                TrackInfo info = fresh.get(b--);
+                ids[w] = newId(w);
+                setPath(w, info.path());
+                setColumns(w, info);
+                w--;
+            }
+        }
+        size += fresh.size();
+        staleFrom = 0;
+        rebuildPathSlots();
+    }
+
+    private void moveRow(int from, int to) {
+        ids[to] = ids[from];
+        titles[to] = titles[from];
+        artistRefs[to] = artistRefs[from];
+        albumRefs[to] = albumRefs[from];
+        dirRefs[to] = dirRefs[from];
+        fileNames[to] = fileNames[from];
+    }
+
+    private void setPath(int row, Path path) {
+        Path dir = path.getParent();
+        dirRefs[row] = dirs.intern(dir != null ? dir.toString() : "");
+        fileNames[row] = path.getFileName().toString();
+    }
+
+    private void setColumns(int row, TrackInfo info) {
+        titles[row] = info.displayTitle();
+        artistRefs[row] = artists.intern(info.displayArtist());
+        albumRefs[row] = albums.intern(info.album() != null ? info.album() : "");
+    }
+
+    private int newId(int row) {
+        if (nextId == idToRow.length) idToRow = Arrays.copyOf(idToRow, nextId * 2);
+        idToRow[nextId] = row;
+        return nextId++;
+    }
+
+    private Path pathAt(int row) {
+        return Path.of(dirs.get(dirRefs[row]), fileNames[row]);
+    }
+
+    private int insertionPoint(Path path) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (LibraryScanner.PATH_ORDER.compare(pathAt(mid), path) <= 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private void reindex() {
+        for (int row = staleFrom; row < size; row++) idToRow[ids[row]] = row;
+        staleFrom = Integer.MAX_VALUE;
+    }
+
+    private int requireRow(int id) {
+        int row = rowOf(id);
+        if (row < 0) throw new IllegalArgumentException("No track with id " + id);
+        return row;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException(row);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= ids.length) return;
+        int cap = Math.max(needed, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, cap);
+        titles = Arrays.copyOf(titles, cap);
+        artistRefs = Arrays.copyOf(artistRefs, cap);
+        albumRefs = Arrays.copyOf(albumRefs, cap);
+        dirRefs = Arrays.copyOf(dirRefs, cap);
+        fileNames = Arrays.copyOf(fileNames, cap);
+    }
+
+    private static int pathHash(int dirRef, String name) {
+        int h = dirRef * 0x9E3779B9 + name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /** Links a row that is already stored (and counted in {@code size}). */
+    private void linkPath(int id, int row) {
+        if ((pathSlotsUsed + 1) * 2 > pathSlots.length) {
+            // the rebuild walks every stored row, this one included
+            pathSlots = new int[pathSlots.length * 2];
+            rebuildPathSlots();
+            return;
+        }
+        int mask = pathSlots.length - 1;
+        int slot = pathHash(dirRefs[row], fileNames[row]) & mask;
+        while (pathSlots[slot] > 0) slot = (slot + 1) & mask;
+        if (pathSlots[slot] == 0) pathSlotsUsed++;
+        pathSlots[slot] = id + 1;
+    }
+
+    private void unlinkPath(int id, int row) {
+        int mask = pathSlots.length - 1;
+        for (int slot = pathHash(dirRefs[row], fileNames[row]) & mask; pathSlots[slot] != 0; slot = (slot + 1) & mask) {
+            if (pathSlots[slot] == id + 1) {
+                pathSlots[slot] = -1;
+                return;
+            }
+        }
+    }
+
+    private void rebuildPathSlots() {
+        int cap = pathSlots.length;
+        while (size * 2 > cap) cap *= 2;
+        pathSlots = new int[cap];
+        pathSlotsUsed = 0;
+        int mask = cap - 1;
+        for (int row = 0; row < size; row++) {
+            int slot = pathHash(dirRefs[row], fileNames[row]) & mask;
+            while (pathSlots[slot] != 0) slot = (slot + 1) & mask;
+            pathSlots[slot] = ids[row] + 1;
+            pathSlotsUsed++;
+        }
+    }
+
+    /** Append-only intern pool: each distinct string is stored once and referred to by index. */
+    private static final class StringPool {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int intern(String s) {
+            Integer ref = refs.get(s);
+            if (ref != null) return ref;
+            values.add(s);
+            refs.put(s, values.size() - 1);
+            return values.size() - 1;
+        }
+
+        int find(String s) {
+            Integer ref = refs.get(s);
+            return ref != null ? ref : -1;
+        }
+
+        String get(int ref) {
+            return values.get(ref);
+        }
+    }
+
+    /** Zero-copy list view over the title column. */
+    private final class TitleList extends ObservableListBase<String> {
+
+        @Override
+        public String get(int index) {
+            checkRow(index);
+            return titles[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        // ObservableListBase nests these and fires once at the outermost endChange()
+        void begin() {
+            beginChange();
+        }
+
+        void end() {
+            endChange();
+        }
+
+        void added(int from, int to) {
+            nextAdd(from, to);
+        }
+
+        void removed(int row, String old) {
+            nextRemove(row, old);
+        }
+
+        void removed(int row, List<String> old) {
+            nextRemove(row, old);
+        }
+
+        void replaced(int row, String old) {
+            nextSet(row, old);
+        }
+    }
+}
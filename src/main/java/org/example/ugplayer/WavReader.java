@@ -0,0 +1,136 @@
+package org.example.ugplayer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streaming sample reader for PCM WAV files (8/16/24/32-bit integer and 32-bit float, including
+ * {@code WAVE_FORMAT_EXTENSIBLE}). Frames are decoded into the caller's float array through one
+ * fixed-size byte buffer, so memory use does not depend on the length of the file.
+ */
+final class WavReader implements Closeable {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final FileChannel ch;
+    private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private final int channels;
+    private final int sampleRate;
+    private final int blockAlign;
+    private final int bits;
+    private final boolean floating;
+    private final long frames;
+    private long pos;
+    private long framesRead;
+
+    private WavReader(FileChannel ch) throws IOException {
+        this.ch = ch;
+        if (fill(0, 12) < 12 || buf.getInt(0) != 0x46464952 || buf.getInt(8) != 0x45564157) {
+            throw new IOException("Not a RIFF/WAVE file"); // "RIFF", "WAVE"
+        }
+        int tag = -1, channels = 0, sampleRate = 0, blockAlign = 0, bits = 0;
+        long dataStart = -1;
+        long dataEnd = -1;
+        long end = ch.size();
+        for (long p = 12; p + 8 <= end && dataStart < 0; ) {
+            if (fill(p, 8) < 8) break;
+            int id = buf.getInt(0);
+            long size = buf.getInt(4) & 0xFFFFFFFFL;
+            if (id == 0x20746D66) { // "fmt "
+                if (fill(p + 8, (int) Math.min(size, 40)) < 16) throw new IOException("Short fmt chunk");
+                tag = buf.getShort(0) & 0xFFFF;
+                channels = buf.getShort(2) & 0xFFFF;
+                sampleRate = buf.getInt(4);
+                blockAlign = buf.getShort(12) & 0xFFFF;
+                bits = buf.getShort(14) & 0xFFFF;
+                if (tag == 0xFFFE && size >= 26) tag = buf.getShort(24) & 0xFFFF; // extensible: sub-format
+            } else if (id == 0x61746164) { // "data"
+                dataStart = p + 8;
+                dataEnd = Math.min(end, dataStart + size);
+            }
+            p += 8 + size + (size & 1);
+        }
+        if (tag < 0 || dataStart < 0) throw new IOException("WAVE without fmt or data chunk");
+        boolean isFloat = tag == 3;
+        if ((tag != 1 && !isFloat) || (isFloat && bits != 32)) throw new IOException("Unsupported WAVE encoding " + tag);
+        if (bits != 8 && bits != 16 && bits != 24 && bits != 32) throw new IOException("Unsupported sample size " + bits);
+        if (channels == 0 || sampleRate <= 0 || blockAlign < channels * bits / 8) throw new IOException("Bad WAVE format");
+
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.blockAlign = blockAlign;
+        this.bits = bits;
+        this.floating = isFloat;
+        this.frames = (dataEnd - dataStart) / blockAlign;
+        this.pos = dataStart;
+    }
+
+    static WavReader open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new WavReader(ch);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    int channels() {
+        return channels;
+    }
+
+    int sampleRate() {
+        return sampleRate;
+    }
+
+    long frames() {
+        return frames;
+    }
+
+    /**
+     * Reads up to {@code out.length / channels()} frames as interleaved samples in -1..1.
+     * Returns the number of frames read, 0 at the end of the data.
+     */
+    int read(float[] out) throws IOException {
+        int want = (int) Math.min(Math.min(out.length / channels, BUFFER_BYTES / blockAlign), frames - framesRead);
+        if (want <= 0) return 0;
+        int got = fill(pos, want * blockAlign) / blockAlign;
+        int bytesPerSample = bits / 8;
+        int i = 0;
+        for (int f = 0; f < got; f++) {
+            int base = f * blockAlign;
+            for (int c = 0; c < channels; c++) out[i++] = sample(base + c * bytesPerSample);
+        }
+        pos += (long) got * blockAlign;
+        framesRead += got;
+        return got;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ch.close();
+    }
+
+    private float sample(int offset) {
+        return switch (bits) {
+            case 8 -> ((buf.get(offset) & 0xFF) - 128) / 128f;
+            case 16 -> buf.getShort(offset) / 32768f;
+            case 24 -> ((buf.get(offset) & 0xFF) | (buf.get(offset + 1) & 0xFF) << 8 | buf.get(offset + 2) << 16) / 8388608f;
+            default -> floating ? buf.getFloat(offset) : buf.getInt(offset) / 2147483648f;
+        };
+    }
+
+    /** Reads up to {@code length} bytes at {@code at} into the start of the buffer. */
+    private int fill(long at, int length) throws IOException {
+        buf.clear().limit(length);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, at + buf.position()) < 0) break;
+        }
+        return buf.position();
+    }
+}
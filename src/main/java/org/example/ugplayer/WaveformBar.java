@@ -0,0 +1,97 @@
+package org.example.ugplayer;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+/**
+ * Seek bar drawn as a waveform overview: one column per pixel spanning the peaks of the buckets
+ * under it, blue up to the play position and grey after it. Without peaks it draws a plain bar.
+ * Moving the position only repaints the columns between the old and the new position.
+ */
+final class WaveformBar extends Region {
+
+    private static final Color PLAYED = Color.web("#007BFF");
+    private static final Color AHEAD = Color.web("#9aa9b8");
+    private static final Color TRACK = Color.web("#d6d6d6");
+
+    private final Canvas canvas = new Canvas();
+    private Waveforms.Peaks peaks;
+    private double progress;
+
+    WaveformBar() {
+        getChildren().add(canvas);
+        setMinHeight(18);
+        setPrefHeight(18);
+    }
+
+    void setPeaks(Waveforms.Peaks peaks) {
+        this.peaks = peaks;
+        redraw(0, (int) canvas.getWidth());
+    }
+
+    double getProgress() {
+        return progress;
+    }
+
+    void setProgress(double value) {
+        double clamped = Math.max(0, Math.min(1, value));
+        int oldX = (int) (progress * canvas.getWidth());
+        int newX = (int) (clamped * canvas.getWidth());
+        progress = clamped;
+        if (oldX != newX) redraw(Math.min(oldX, newX), Math.max(oldX, newX) + 1);
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double w = snapSizeX(getWidth());
+        double h = snapSizeY(getHeight());
+        if (w != canvas.getWidth() || h != canvas.getHeight()) {
+            canvas.setWidth(w);
+            canvas.setHeight(h);
+            redraw(0, (int) w);
+        }
+    }
+
+    /** Repaints pixel columns {@code from} (inclusive) to {@code to} (exclusive). */
+    private void redraw(int from, int to) {
+        int width = (int) canvas.getWidth();
+        double height = canvas.getHeight();
+        if (width <= 0 || height <= 0) return;
+        from = Math.max(0, from);
+        to = Math.min(width, to);
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.clearRect(from, 0, to - from, height);
+        int playedX = (int) (progress * width);
+        double mid = height / 2;
+
+        if (peaks == null) {
+            double barTop = mid - 3;
+            g.setFill(TRACK);
+            g.fillRect(from, barTop, to - from, 6);
+            if (playedX > from) {
+                g.setFill(PLAYED);
+                g.fillRect(from, barTop, Math.min(playedX, to) - from, 6);
+            }
+            return;
+        }
+
+        int buckets = peaks.buckets();
+        for (int x = from; x < to; x++) {
+            int first = x * buckets / width;
+            int last = Math.max(first, (x + 1) * buckets / width - 1);
+            int lo = 127;
+            int hi = -127;
+            for (int b = first; b <= last && b < buckets; b++) {
+                lo = Math.min(lo, peaks.min()[b]);
+                hi = Math.max(hi, peaks.max()[b]);
+            }
+            if (hi < lo) continue;
+            double top = mid - hi * mid / 127;
+            double bottom = mid - lo * mid / 127;
+            g.setFill(x < playedX ? PLAYED : AHEAD);
+            g.fillRect(x, top, 1, Math.max(1, bottom - top));
+        }
+    }
+}
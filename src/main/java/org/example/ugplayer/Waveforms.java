@@ -0,0 +1,200 @@
+package org.example.ugplayer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Waveform overviews for the mini player's seek bar: the lowest and highest sample of each of
+ * {@code BUCKETS} equal slices of a track. Peaks are computed on a small background pool by
+ * streaming the audio through {@link WavReader}, so memory use does not depend on track length.
+ * Only PCM WAV is decoded for now; other formats get no overview.
+ *
+ * <p>Each overview is written to {@code ~/.muzik/peaks} (about 800 bytes, keyed like
+ * {@link ArtCache} by path, size and modification time) and a handful are kept in memory. The disk
+ * cache is held to {@code -Dmuzik.peaksDiskMB} (default 32) by {@link DiskCache}. Computing an
+ * overview is timed as {@code waveform.compute} in {@link Metrics}.
+ */
+final class Waveforms {
+
+    static final int BUCKETS = 400;
+    private static final int MAGIC = 0x4D5A504B; // "MZPK"
+    private static final int MEMORY_ENTRIES = 32;
+    private static final long DISK_BYTES = Math.max(1, Long.getLong("muzik.peaksDiskMB", 32)) * 1024 * 1024;
+    private static final int PRUNE_EVERY = 500;
+
+    /** Per-bucket minimum and maximum, scaled to -127..127 of full scale. */
+    record Peaks(byte[] min, byte[] max) {
+        int buckets() {
+            return min.length;
+        }
+    }
+
+    private final Path diskDir;
+    private final Map<String, Peaks> recent = new LinkedHashMap<>(MEMORY_ENTRIES * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Peaks> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+    private final Map<String, CompletableFuture<Peaks>> loading = new ConcurrentHashMap<>();
+    private final ExecutorService workers = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "waveform");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final AtomicInteger writes = new AtomicInteger();
+
+    Waveforms() {
+        this(Path.of(System.getProperty("user.home"), ".muzik", "peaks"));
+    }
+
+    Waveforms(Path diskDir) {
+        this.diskDir = diskDir;
+        workers.execute(() -> DiskCache.prune(diskDir, DISK_BYTES));
+    }
+
+    /** Overview of {@code file}, or {@code null} if its format is not supported. Completes on a background thread. */
+    CompletableFuture<Peaks> get(Path file) {
+        if (!file.getFileName().toString().toLowerCase().endsWith(".wav")) return CompletableFuture.completedFuture(null);
+        Path abs = file.toAbsolutePath().normalize();
+        CompletableFuture<Peaks> result = new CompletableFuture<>();
+        CompletableFuture<Peaks> running = loading.putIfAbsent(abs.toString(), result);
+        if (running != null) return running;
+        workers.execute(() -> {
+            try {
+                result.complete(load(abs));
+            } catch (Exception e) {
+                System.err.println("Cannot compute waveform of " + file.getFileName() + ": " + e.getMessage());
+                result.complete(null);
+            } finally {
+                loading.remove(abs.toString(), result);
+            }
+        });
+        return result;
+    }
+
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private Peaks load(Path file) throws IOException {
+        String key = ArtCache.key(file);
+        synchronized (recent) {
+            Peaks known = recent.get(key);
+            if (known != null) return known;
+        }
+        Peaks peaks = readDisk(key);
+        if (peaks == null) {
+            long start = System.nanoTime();
+            peaks = compute(file);
+            Metrics.timer("waveform.compute").recordSince(start);
+            writeDisk(key, peaks);
+        }
+        synchronized (recent) {
+            recent.put(key, peaks);
+        }
+        return peaks;
+    }
+
+    // === decoding ===
+
+    /** Streams the audio once, folding every sample of every channel into its bucket. */
+    static Peaks compute(Path file) throws IOException {
+        try (WavReader wav = WavReader.open(file)) {
+            long frames = wav.frames();
+            int channels = wav.channels();
+            int buckets = (int) Math.max(1, Math.min(BUCKETS, frames));
+            float[] min = new float[buckets];
+            float[] max = new float[buckets];
+            Arrays.fill(min, 1f);
+            Arrays.fill(max, -1f);
+
+            float[] samples = new float[4096 * channels];
+            long frame = 0;
+            for (int n; (n = wav.read(samples)) > 0; ) {
+                for (int f = 0, i = 0; f < n; f++, frame++) {
+                    int bucket = (int) (frame * buckets / frames);
+                    for (int c = 0; c < channels; c++, i++) {
+                        float v = samples[i];
+                        if (v < min[bucket]) min[bucket] = v;
+                        if (v > max[bucket]) max[bucket] = v;
+                    }
+                }
+            }
+
+            byte[] lo = new byte[buckets];
+            byte[] hi = new byte[buckets];
+            for (int i = 0; i < buckets; i++) {
+                lo[i] = toByte(min[i] > max[i] ? 0 : min[i]);
+                hi[i] = toByte(min[i] > max[i] ? 0 : max[i]);
+            }
+            return new Peaks(lo, hi);
+        }
+    }
+
+    private static byte toByte(float v) {
+        return (byte) Math.round(Math.max(-1f, Math.min(1f, v)) * 127);
+    }
+
+    // === disk ===
+
+    private Path diskFile(String key) {
+        return diskDir.resolve(Long.toHexString(ArtCache.hash64(key)) + ".peaks");
+    }
+
+    private Peaks readDisk(String key) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(diskFile(key))))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(key)) return null; // hash collision or old file
+            int buckets = in.readUnsignedShort();
+            if (buckets == 0 || buckets > BUCKETS) return null;
+            byte[] min = new byte[buckets];
+            byte[] max = new byte[buckets];
+            in.readFully(min);
+            in.readFully(max);
+            DiskCache.touch(diskFile(key));
+            return new Peaks(min, max);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, Peaks peaks) {
+        try {
+            Files.createDirectories(diskDir);
+            Path target = diskFile(key);
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp" + Thread.currentThread().getId());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(key);
+                out.writeShort(peaks.buckets());
+                out.write(peaks.min());
+                out.write(peaks.max());
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (writes.incrementAndGet() % PRUNE_EVERY == 0) DiskCache.prune(diskDir, DISK_BYTES);
+        } catch (IOException e) {
+            System.err.println("Cannot write waveform cache: " + e.getMessage());
+        }
+    }
+}
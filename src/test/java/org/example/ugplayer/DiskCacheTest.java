@@ -0,0 +1,54 @@
+package org.example.ugplayer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Pruning a cache directory by last use. */
+class DiskCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsEverythingUnderTheLimit() throws IOException {
+        Path a = file("a", 1000, 1);
+        Path b = file("b", 1000, 2);
+        DiskCache.prune(dir, 2000);
+        assertTrue(Files.exists(a));
+        assertTrue(Files.exists(b));
+    }
+
+    @Test
+    void deletesLeastRecentlyUsedFirst() throws IOException {
+        Path a = file("a", 1000, 1);
+        Path b = file("b", 1000, 2);
+        Path c = file("c", 1000, 3);
+        Path d = file("d", 1000, 4);
+        DiskCache.touch(a);
+        DiskCache.prune(dir, 3000);
+        // back under three quarters of the limit: the two oldest go, the touched one stays
+        assertTrue(Files.exists(a));
+        assertFalse(Files.exists(b));
+        assertFalse(Files.exists(c));
+        assertTrue(Files.exists(d));
+    }
+
+    @Test
+    void missingDirectoryIsNotAnError() {
+        DiskCache.prune(dir.resolve("none"), 1);
+    }
+
+    private Path file(String name, int size, long minutes) throws IOException {
+        Path f = Files.write(dir.resolve(name), new byte[size]);
+        Files.setLastModifiedTime(f, FileTime.fromMillis(minutes * 60_000));
+        return f;
+    }
+}
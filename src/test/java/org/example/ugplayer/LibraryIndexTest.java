@@ -0,0 +1,29 @@
+package org.example.ugplayer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Where each library folder's index lives. */
+class LibraryIndexTest {
+
+    @Test
+    void folderIndexSitsNextToTheFolder() {
+        Path folder = Path.of("/music/Rock").toAbsolutePath();
+        assertEquals(folder.resolveSibling("Rock.muzik-index"), LibraryIndex.indexFile(folder));
+    }
+
+    @Test
+    void rootIndexGoesToTheUserFolderUnderItsOwnName() {
+        Path root = Path.of("/").toAbsolutePath().getRoot();
+        Path file = LibraryIndex.indexFile(root);
+        assertTrue(file.isAbsolute(), file.toString());
+        assertTrue(file.startsWith(Path.of(System.getProperty("user.home"), ".muzik", "indexes")), file.toString());
+        assertEquals(file, LibraryIndex.indexFile(root));
+        assertNotEquals(file, LibraryIndex.indexFile(Path.of("/music").toAbsolutePath()));
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.ugplayer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Writing and reading M3U/M3U8 playlists. */
+class M3uTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void m3u8RoundTrip() throws IOException {
+        Path file = dir.resolve("mix.m3u8");
+        List<Playlist.Entry> entries = List.of(
+                new Playlist.Entry(dir.resolve("Artist/Song.mp3"), "Künstler – Lied"),
+                new Playlist.Entry(dir.getRoot().resolve("elsewhere").resolve("track.flac"), "日本語"),
+                new Playlist.Entry(dir.resolve("no title.wav"), "no title.wav"));
+        M3u.write(file, entries);
+
+        List<Playlist.Entry> read = new ArrayList<>();
+        assertEquals(3, M3u.read(file, 2, read::addAll));
+        assertEquals(entries, read);
+        // entries below the playlist's folder are stored relative to it
+        assertEquals("Artist/Song.mp3".replace('/', dir.getFileSystem().getSeparator().charAt(0)),
+                Files.readAllLines(file, StandardCharsets.UTF_8).get(2));
+    }
+
+    @Test
+    void readsLatin1M3uAndSkipsStreams() throws IOException {
+        Path file = dir.resolve("old.m3u");
+        Files.write(file, "#EXTM3U\n#EXTINF:12,Café\ncafe.mp3\nhttp://radio.example/stream\n\n#comment\nfile:///tmp/x.mp3\n"
+                .getBytes(StandardCharsets.ISO_8859_1));
+
+        List<Playlist.Entry> read = new ArrayList<>();
+        M3u.read(file, 100, read::addAll);
+        assertEquals(List.of(new Playlist.Entry(dir.resolve("cafe.mp3"), "Café"),
+                new Playlist.Entry(Path.of("/tmp/x.mp3"), null)), read);
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.ugplayer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Play history across a close and reopen. */
+class PlayLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void closeDoesNotWaitForTheDelayedForce() throws Exception {
+        PlayLog log = new PlayLog(dir);
+        Path track = dir.resolve("a.mp3");
+        log.record(track, true, 200);
+        log.mostPlayed(1).get(5, TimeUnit.SECONDS); // the event is in and its delayed force scheduled
+
+        long start = System.nanoTime();
+        log.close();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(millis < 1000, "close took " + millis + " ms");
+
+        PlayLog reopened = new PlayLog(dir);
+        List<PlayLog.Stat> top = reopened.mostPlayed(1).get(5, TimeUnit.SECONDS);
+        assertEquals(1, top.size());
+        assertEquals(PlayLog.key(track), top.get(0).key());
+        reopened.close();
+    }
+}
@@ -0,0 +1,158 @@
+package org.example.ugplayer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Shuffle rounds, repeat modes, history and Up Next, driven the way the player drives the queue. */
+class PlayQueueTest {
+
+    private final TrackStore store = new TrackStore();
+    private final PlayQueue queue = new PlayQueue(store, new SplittableRandom(7));
+
+    @Test
+    void shuffleRoundPlaysEveryTrackOnceWithTracksAddedAndRemovedMidRound() {
+        int[] ids = library(50);
+        queue.setShuffle(true);
+        queue.played(ids[0]);
+        Set<Integer> played = new HashSet<>(Set.of(ids[0]));
+        for (int i = 0; i < 10; i++) assertTrue(played.add(step()), "repeat within the round");
+
+        List<Integer> added = new ArrayList<>();
+        for (int i = 0; i < 5; i++) added.add(store.put(info(50 + i)));
+        Set<Integer> removed = new HashSet<>();
+        for (int id : ids) {
+            if (removed.size() < 3 && !played.contains(id)) removed.add(id);
+        }
+        removed.forEach(store::remove);
+
+        int rest = 50 + added.size() - removed.size() - played.size();
+        for (int i = 0; i < rest; i++) {
+            int id = step();
+            assertFalse(removed.contains(id), "removed track dealt");
+            assertTrue(played.add(id), "repeat within the round");
+        }
+        assertTrue(played.containsAll(added));
+        assertEquals(store.size(), played.size());
+
+        // the next round starts over
+        assertTrue(store.contains(step()));
+    }
+
+    @Test
+    void shuffleWithRepeatOffStopsAfterTheRound() {
+        int[] ids = library(5);
+        queue.setRepeat(PlayQueue.Repeat.OFF);
+        queue.setShuffle(true);
+        queue.played(ids[0]);
+        for (int i = 0; i < 4; i++) step();
+        assertEquals(-1, queue.next(true));
+    }
+
+    @Test
+    void peekNextAgreesWithNext() {
+        int[] ids = library(40);
+        queue.played(ids[0]);
+        for (int round = 0; round < 2; round++) {
+            queue.setShuffle(round == 1);
+            queue.enqueue(ids[5]);
+            queue.playNext(ids[9]);
+            for (int i = 0; i < 60; i++) {
+                if (i == 20) store.remove(queue.peekNext(false)); // a pre-rolled track deleted before it plays
+                int peeked = queue.peekNext(false);
+                assertEquals(peeked, queue.peekNext(false));
+                int id = queue.next(false);
+                assertEquals(peeked, id);
+                queue.played(id);
+            }
+        }
+    }
+
+    @Test
+    void repeatAtTheEndOfTheLibrary() {
+        int[] ids = library(3);
+        int last = ids[2];
+        queue.played(last);
+
+        queue.setRepeat(PlayQueue.Repeat.ONE);
+        assertEquals(last, queue.peekNext(true));
+        assertEquals(ids[0], queue.peekNext(false)); // a skip moves on
+
+        queue.setRepeat(PlayQueue.Repeat.OFF);
+        assertEquals(-1, queue.peekNext(true));
+        assertEquals(-1, queue.peekNext(false));
+
+        queue.setRepeat(PlayQueue.Repeat.ALL);
+        assertEquals(ids[0], queue.next(true));
+    }
+
+    @Test
+    void previousAndNextThroughHistorySkipDeletedTracks() {
+        int[] ids = library(6);
+        queue.played(ids[0]);
+        for (int i = 1; i <= 3; i++) assertEquals(ids[i], step());
+
+        assertEquals(ids[2], queue.previous());
+        queue.played(ids[2]);
+        assertEquals(ids[1], queue.previous());
+        queue.played(ids[1]);
+
+        store.remove(ids[2]);
+        assertEquals(ids[3], queue.next(false));
+        queue.played(ids[3]);
+        assertEquals(ids[1], queue.previous());
+        queue.played(ids[1]);
+        assertEquals(ids[3], step());
+        assertEquals(ids[4], step());
+    }
+
+    @Test
+    void upNextKeepsItsOrderWhileGrowingAcrossTheWrap() {
+        int[] ids = library(40);
+        queue.played(ids[0]);
+        for (int i = 0; i < 10; i++) queue.enqueue(ids[i + 1]);
+        for (int i = 0; i < 5; i++) assertEquals(ids[i + 1], step());
+
+        // the ring now starts in the middle; fill it past its first capacity from both ends
+        for (int i = 11; i < 21; i++) queue.enqueue(ids[i]);
+        queue.playNext(ids[30]);
+        queue.playNext(ids[31]);
+        assertEquals(17, queue.upNextSize());
+
+        List<Integer> expected = new ArrayList<>(List.of(ids[31], ids[30]));
+        for (int i = 6; i < 21; i++) expected.add(ids[i]);
+        for (int id : expected) assertEquals(id, step());
+        assertEquals(0, queue.upNextSize());
+        // library order continues after the last track picked from the library, not from Up Next
+        assertEquals(ids[1], step());
+    }
+
+    /** One Next, as the player does it: move on, then report the track as playing. */
+    private int step() {
+        int id = queue.next(false);
+        queue.played(id);
+        return id;
+    }
+
+    /** {@code n} tracks; ids in library order. */
+    private int[] library(int n) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) ids[i] = store.put(info(i));
+        for (int row = 0; row < n; row++) assertEquals(ids[row], store.idAt(row));
+        return ids;
+    }
+
+    private static TrackInfo info(int i) {
+        Path path = Path.of("/music", String.format("%03d Track.mp3", i));
+        return new TrackInfo(path, TrackInfo.fileTitle(path), "Artist", "Album");
+    }
+}
@@ -0,0 +1,206 @@
+package org.example.ugplayer;
+
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Saving and reopening playlist files: appends, deletion marks, compaction and crash leftovers. */
+class PlaylistTest {
+
+    @TempDir
+    Path dir;
+
+    private final TrackStore tracks = new TrackStore();
+
+    @BeforeAll
+    static void startToolkit() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Platform.startup(started::countDown);
+        } catch (IllegalStateException alreadyRunning) {
+            started.countDown();
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void appendThenReopen() throws Exception {
+        Path file = dir.resolve("a.muzpl");
+        Playlist playlist = created(file);
+        fx(() -> playlist.add(entries(0, 3)));
+        fx(() -> playlist.add(entries(3, 2)));
+        assertEquals(entries(0, 5), reopened(file));
+    }
+
+    @Test
+    void removeThenReopen() throws Exception {
+        Path file = dir.resolve("r.muzpl");
+        Playlist playlist = created(file);
+        fx(() -> playlist.add(entries(0, 6)));
+        fx(() -> playlist.remove(new int[]{4, 1}));
+        List<Playlist.Entry> expected = entries(0, 6);
+        expected.remove(4);
+        expected.remove(1);
+        assertEquals(expected, reopened(file));
+        assertEquals(List.of(4, 2), headerCounts(file));
+    }
+
+    @Test
+    void removeWhileLoadingWaitsForTheRest() throws Exception {
+        Path file = dir.resolve("l.muzpl");
+        Playlist playlist = created(file);
+        fx(() -> playlist.add(entries(0, Playlist.CHUNK * 3)));
+        flush();
+
+        // remove as soon as the first chunk shows, before the other chunks arrive
+        Playlist reopened = fx(() -> {
+            Playlist p = Playlist.open(file, tracks);
+            p.entries().addListener(new ListChangeListener<>() {
+                @Override
+                public void onChanged(Change<? extends Playlist.Entry> c) {
+                    p.entries().removeListener(this);
+                    assertTrue(!p.loaded().isDone());
+                    p.remove(new int[]{0, 7});
+                }
+            });
+            return p;
+        });
+        reopened.loaded().get(10, TimeUnit.SECONDS);
+        List<Playlist.Entry> expected = entries(0, Playlist.CHUNK * 3);
+        expected.remove(7);
+        expected.remove(0);
+        assertEquals(expected, fx(() -> List.copyOf(reopened.entries())));
+        assertEquals(expected, reopened(file));
+    }
+
+    @Test
+    void compactsOnceDeletedRecordsOutnumberLiveOnes() throws Exception {
+        Path file = dir.resolve("c.muzpl");
+        Playlist playlist = created(file);
+        int total = Playlist.CHUNK * 3;
+        fx(() -> playlist.add(entries(0, total)));
+        flush();
+        long fullSize = Files.size(file);
+
+        int[] firstTwoThirds = new int[Playlist.CHUNK * 2];
+        for (int i = 0; i < firstTwoThirds.length; i++) firstTwoThirds[i] = i;
+        fx(() -> playlist.remove(firstTwoThirds));
+        flush();
+
+        assertEquals(List.of(Playlist.CHUNK, 0), headerCounts(file));
+        assertTrue(Files.size(file) < fullSize / 2, "file was not rewritten");
+        assertEquals(entries(Playlist.CHUNK * 2, Playlist.CHUNK), reopened(file));
+    }
+
+    @Test
+    void dropsATruncatedFinalRecord() throws Exception {
+        Path file = dir.resolve("t.muzpl");
+        Playlist playlist = created(file);
+        fx(() -> playlist.add(entries(0, 3)));
+        flush();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 3);
+        }
+
+        Playlist reopened = opened(file);
+        assertEquals(entries(0, 2), fx(() -> List.copyOf(reopened.entries())));
+        // appending after the cut leaves a file that reads back cleanly
+        fx(() -> reopened.add(entries(10, 1)));
+        List<Playlist.Entry> expected = entries(0, 2);
+        expected.addAll(entries(10, 1));
+        assertEquals(expected, reopened(file));
+        assertEquals(List.of(3, 0), headerCounts(file));
+    }
+
+    @Test
+    void repairsStaleHeaderCounts() throws Exception {
+        Path file = dir.resolve("s.muzpl");
+        Playlist playlist = created(file);
+        fx(() -> playlist.add(entries(0, 4)));
+        fx(() -> playlist.remove(new int[]{2}));
+        flush();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(8).putInt(99).putInt(0).flip(), 8);
+        }
+
+        List<Playlist.Entry> expected = entries(0, 4);
+        expected.remove(2);
+        assertEquals(expected, reopened(file));
+        assertEquals(List.of(3, 1), headerCounts(file));
+    }
+
+    // === helpers ===
+
+    private Playlist created(Path file) throws Exception {
+        Playlist playlist = fx(() -> Playlist.create(file, tracks));
+        playlist.loaded().get(10, TimeUnit.SECONDS);
+        return playlist;
+    }
+
+    private Playlist opened(Path file) throws Exception {
+        flush();
+        Playlist playlist = fx(() -> Playlist.open(file, tracks));
+        playlist.loaded().get(10, TimeUnit.SECONDS);
+        return playlist;
+    }
+
+    private List<Playlist.Entry> reopened(Path file) throws Exception {
+        Playlist playlist = opened(file);
+        return fx(() -> List.copyOf(playlist.entries()));
+    }
+
+    /** Waits for the file work queued so far. */
+    private static void flush() throws Exception {
+        Playlist.io.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+
+    private static void fx(Runnable action) throws Exception {
+        fx(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private static <T> T fx(Supplier<T> action) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(action.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result.get(10, TimeUnit.SECONDS);
+    }
+
+    private static List<Integer> headerCounts(Path file) throws IOException {
+        ByteBuffer head = ByteBuffer.wrap(Files.readAllBytes(file), 8, 8);
+        return List.of(head.getInt(), head.getInt());
+    }
+
+    private static List<Playlist.Entry> entries(int from, int n) {
+        List<Playlist.Entry> out = new ArrayList<>(n);
+        for (int i = from; i < from + n; i++) {
+            out.add(new Playlist.Entry(Path.of("/music", "Track " + i + ".mp3"), i % 3 == 0 ? null : "Titel " + i + " ü"));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.ugplayer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Path lookups across resizes of the path table, removals (tombstones) and lazy reindexing. */
+class TrackStoreTest {
+
+    private static final int TRACKS = 3000;
+
+    @Test
+    void findAfterInsertsPastResizeAndRemovals() {
+        TrackStore store = new TrackStore();
+        List<Path> paths = paths(TRACKS);
+        Collections.shuffle(paths, new Random(1));
+        int[] ids = new int[TRACKS];
+        for (int i = 0; i < TRACKS; i++) ids[i] = store.put(info(paths.get(i)));
+
+        for (int i = 0; i < TRACKS; i += 2) assertTrue(store.remove(ids[i]));
+
+        for (int i = 0; i < TRACKS; i++) {
+            int id = store.find(paths.get(i));
+            if (i % 2 == 0) {
+                assertEquals(-1, id, paths.get(i).toString());
+            } else {
+                assertEquals(ids[i], id, paths.get(i).toString());
+                assertEquals(paths.get(i), store.path(id));
+            }
+        }
+        assertEquals(TRACKS / 2, store.size());
+        assertSorted(store);
+    }
+
+    /** Whichever insert grows the path table, removing that track must leave no slot behind. */
+    @Test
+    void findAfterRemovingTheLatestInsertAtEverySize() {
+        List<Path> paths = paths(300);
+        for (int n = 1; n <= paths.size(); n++) {
+            TrackStore store = new TrackStore();
+            int last = -1;
+            for (int i = 0; i < n; i++) last = store.put(info(paths.get(i)));
+            store.remove(last);
+            for (int i = 0; i < n - 1; i++) assertEquals(paths.get(i), store.path(store.find(paths.get(i))));
+            assertEquals(-1, store.find(paths.get(n - 1)), "n = " + n);
+        }
+    }
+
+    @Test
+    void removedPathsCanBeAddedAgain() {
+        TrackStore store = new TrackStore();
+        List<Path> paths = paths(TRACKS);
+        int[] ids = new int[TRACKS];
+        for (int i = 0; i < TRACKS; i++) ids[i] = store.put(info(paths.get(i)));
+        for (int i = 0; i < TRACKS; i += 3) store.remove(ids[i]);
+
+        for (int i = 0; i < TRACKS; i += 3) {
+            int id = store.put(info(paths.get(i)));
+            assertFalse(id == ids[i], "ids are not reused");
+            assertEquals(id, store.find(paths.get(i)));
+        }
+        for (int i = 0; i < TRACKS; i++) assertEquals(paths.get(i), store.path(store.find(paths.get(i))));
+        assertEquals(TRACKS, store.size());
+    }
+
+    @Test
+    void findAfterChunkedMergeAndRemoveAll() {
+        TrackStore store = new TrackStore();
+        List<Path> paths = paths(TRACKS);
+        List<TrackInfo> infos = new ArrayList<>();
+        for (Path p : paths) infos.add(info(p));
+        for (int from = 0; from < TRACKS; from += 100) store.mergeSorted(infos.subList(from, Math.min(TRACKS, from + 100)));
+
+        int[] gone = new int[TRACKS / 4];
+        for (int i = 0; i < gone.length; i++) gone[i] = store.find(paths.get(i * 4));
+        assertEquals(gone.length, store.removeAll(gone));
+
+        for (int i = 0; i < TRACKS; i++) {
+            int id = store.find(paths.get(i));
+            if (i % 4 == 0) assertEquals(-1, id);
+            else assertEquals(paths.get(i), store.path(id));
+        }
+        assertSorted(store);
+    }
+
+    private static void assertSorted(TrackStore store) {
+        for (int row = 1; row < store.size(); row++) {
+            Path before = store.path(store.idAt(row - 1));
+            Path after = store.path(store.idAt(row));
+            assertTrue(LibraryScanner.PATH_ORDER.compare(before, after) < 0, before + " before " + after);
+        }
+    }
+
+    private static List<Path> paths(int n) {
+        List<Path> paths = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            paths.add(Path.of("/music", String.format("Artist %03d", i / 40), String.format("Album %d", i / 10 % 4),
+                    String.format("%02d Track %d.mp3", i % 10 + 1, i)));
+        }
+        paths.sort(LibraryScanner.PATH_ORDER);
+        return paths;
+    }
+
+    private static TrackInfo info(Path path) {
+        return new TrackInfo(path, TrackInfo.fileTitle(path), "Artist", "Album");
+    }
+}